@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filling a large array with XorShift1024Star against XorShift1024StarLanes,
+ * scalar and vectorized.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class LanesBenchmark {
+
+    @Param({"4", "8"})
+    public int lanes;
+
+    private final long[] longs = new long[1 << 16];
+    private final double[] doubles = new double[1 << 16];
+    private XorShift1024Star single;
+    private XorShift1024StarLanes scalar;
+    private XorShift1024StarLanes vector;
+
+    @Setup
+    public void setup() {
+        single = new XorShift1024Star(1);
+        scalar = new XorShift1024StarLanes(lanes, 1, false);
+        vector = new XorShift1024StarLanes(lanes, 1);
+    }
+
+    @Benchmark
+    public long[] singleLongs() {
+        single.nextLongs(longs);
+        return longs;
+    }
+
+    @Benchmark
+    public long[] scalarLongs() {
+        scalar.fill(longs);
+        return longs;
+    }
+
+    @Benchmark
+    public long[] vectorLongs() {
+        vector.fill(longs);
+        return longs;
+    }
+
+    @Benchmark
+    public double[] singleDoubles() {
+        single.nextDoubles(doubles);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] scalarDoubles() {
+        scalar.fill(doubles);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] vectorDoubles() {
+        vector.fill(doubles);
+        return doubles;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures XorShift1024Star when one or three {@link BitsStreamGenerator64}
+ * subclasses have been exercised in the JVM. With three the call sites in
+ * the superclass are megamorphic, the final methods of XorShift1024Star
+ * should not slow down, nextFloat() which goes through the superclass is
+ * given for comparison.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MegamorphicBenchmark {
+
+    @Param({"1", "3"})
+    public int subclasses;
+
+    private XorShift1024Star rng;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        rng = new XorShift1024Star(1);
+        BitsStreamGenerator64[] all = {rng, new Weyl64(), new Lcg64()};
+        for (int i = 0; i < 200000; i++) {
+            for (int k = 0; k < subclasses; k++) {
+                BitsStreamGenerator64 g = all[k];
+                bh.consume(g.nextDouble());
+                bh.consume(g.nextLong());
+                bh.consume(g.nextInt());
+                bh.consume(g.nextFloat());
+            }
+        }
+    }
+
+    @Benchmark
+    public double nextDouble() {
+        return rng.nextDouble();
+    }
+
+    @Benchmark
+    public long nextLong() {
+        return rng.nextLong();
+    }
+
+    @Benchmark
+    public int nextInt() {
+        return rng.nextInt();
+    }
+
+    @Benchmark
+    public float nextFloat() {
+        return rng.nextFloat();
+    }
+
+    /**
+     * Weyl sequence with the MurmurHash3 finalizer, a second subclass.
+     */
+    static final class Weyl64 extends BitsStreamGenerator64 {
+
+        private static final long serialVersionUID = 1L;
+        private long x;
+
+        @Override
+        protected long nextL(int bits) {
+            return mix64(x += 0x9e3779b97f4a7c15L) >>> (WORD_BITS - bits);
+        }
+
+        @Override
+        public void setState(Object state) {
+            x = ((long[]) state)[0];
+            clear();
+        }
+
+        @Override
+        public BitsStreamGenerator64 split() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * 64-bit LCG, a third subclass.
+     */
+    static final class Lcg64 extends BitsStreamGenerator64 {
+
+        private static final long serialVersionUID = 1L;
+        private long x = 1;
+
+        @Override
+        protected long nextL(int bits) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+            return x >>> (WORD_BITS - bits);
+        }
+
+        @Override
+        public void setState(Object state) {
+            x = ((long[]) state)[0];
+            clear();
+        }
+
+        @Override
+        public BitsStreamGenerator64 split() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
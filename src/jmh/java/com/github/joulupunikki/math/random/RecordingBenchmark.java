@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of RecordingGenerator, filling an array with a plain
+ * XorShift1024Star and a recorded one, one double at a time with
+ * nextDouble(), one double at a time through nextL() with nextDoubleOpen()
+ * and with the bulk method.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordingBenchmark {
+
+    private final double[] doubles = new double[1 << 12];
+    private BitsStreamGenerator64 plain;
+    private BitsStreamGenerator64 recorded;
+
+    @Setup
+    public void setup() {
+        plain = new XorShift1024Star(1);
+        recorded = new RecordingGenerator(new XorShift1024Star(1), 1 << 20);
+    }
+
+    @Benchmark
+    public double[] plain() {
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = plain.nextDouble();
+        }
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] recorded() {
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = recorded.nextDouble();
+        }
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] plainNextL() {
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = plain.nextDoubleOpen();
+        }
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] recordedNextL() {
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = recorded.nextDoubleOpen();
+        }
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] plainBulk() {
+        plain.nextDoubles(doubles);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] recordedBulk() {
+        recorded.nextDoubles(doubles);
+        return doubles;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.distribution;
+
+import com.github.joulupunikki.math.random.BitsStreamGenerator64;
+import com.github.joulupunikki.math.random.XorShift1024Star;
+import org.apache.commons.math3.distribution.ExponentialDistribution;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+/**
+ * ExponentialDistribution which samples with the Ziggurat method of
+ * {@link BitsStreamGenerator64#nextExponential()} instead of the algorithm of
+ * super, which needs a log and several uniform doubles per sample. Everything
+ * but sampling is inherited, so this can replace ExponentialDistribution at
+ * its call sites.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class ZigguratExponentialDistribution extends ExponentialDistribution {
+
+    /* date of mod in hex, append version (eg. "a2") if necessary */
+    private static final long serialVersionUID = 0x20150704L;
+    /* the generator of super as a BitsStreamGenerator64 */
+    private final BitsStreamGenerator64 generator;
+
+    /**
+     * Creates a distribution with a time seeded XorShift1024Star.
+     *
+     * @param mean the mean
+     * @throws NotStrictlyPositiveException if mean &le; 0
+     */
+    public ZigguratExponentialDistribution(double mean) {
+        this(new XorShift1024Star(), mean);
+    }
+
+    /**
+     * Creates a distribution.
+     *
+     * @param rng the generator
+     * @param mean the mean
+     * @throws NotStrictlyPositiveException if mean &le; 0
+     */
+    public ZigguratExponentialDistribution(BitsStreamGenerator64 rng, double mean) {
+        this(rng, mean, DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
+    }
+
+    /**
+     * Creates a distribution.
+     *
+     * @param rng the generator
+     * @param mean the mean
+     * @param inverseCumAccuracy the accuracy of inverse cumulative probability
+     * estimates
+     * @throws NotStrictlyPositiveException if mean &le; 0
+     */
+    public ZigguratExponentialDistribution(BitsStreamGenerator64 rng, double mean, double inverseCumAccuracy) {
+        super(rng, mean, inverseCumAccuracy);
+        this.generator = rng;
+    }
+
+    /**
+     * Returns a sample, mean times {@link BitsStreamGenerator64#nextExponential()}.
+     *
+     * @return the sample
+     */
+    @Override
+    public double sample() {
+        return getMean() * generator.nextExponential();
+    }
+
+    /**
+     * Returns sampleSize samples.
+     *
+     * @param sampleSize the count of samples
+     * @return the samples
+     * @throws NotStrictlyPositiveException if sampleSize is not positive
+     */
+    @Override
+    public double[] sample(int sampleSize) {
+        if (sampleSize <= 0) {
+            throw new NotStrictlyPositiveException(sampleSize);
+        }
+        final double mean = getMean();
+        double[] r = new double[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            r[i] = mean * generator.nextExponential();
+        }
+        return r;
+    }
+}
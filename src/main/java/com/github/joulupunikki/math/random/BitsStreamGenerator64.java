@@ -16,8 +16,26 @@
 package com.github.joulupunikki.math.random;
 
 import com.github.joulupunikki.math.util.PrimitiveConversion;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+import org.apache.commons.math3.exception.MathUnsupportedOperationException;
+import org.apache.commons.math3.exception.NotFiniteNumberException;
+import org.apache.commons.math3.exception.NotPositiveException;
 import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.NullArgumentException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.exception.OutOfRangeException;
 import org.apache.commons.math3.random.BitsStreamGenerator;
 import org.apache.commons.math3.util.FastMath;
 
@@ -51,17 +69,100 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
     protected long[] init_vector;
     /* date in hex, append version (eg. "a2") if necessary */
     private static final long serialVersionUID = 0x20150704L;
-    /* time based seeds will have value of this counter added */
-    private static long seed_uniquefier = 0L;
+    /* time based seeds are paired with a value of this counter, each thread
+     * reserves blocks of UNIQUE_BLOCK values */
+    private static final AtomicLong seed_uniquefier = new AtomicLong();
+    /* count of unique seed values reserved by a thread at a time */
+    private static final int UNIQUE_BLOCK = 1024;
+    /* {next, end} of the block of unique seed values of each thread */
+    private static final ThreadLocal<long[]> unique_block = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+    /* SHA-512 digest of each thread, reused by the seed hashing methods */
+    private static final ThreadLocal<MessageDigest> sha512 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-512");
+            } catch (Exception e) { //SHA-512 should be available in java 1.5+
+                throw new RuntimeException(null, e);
+            }
+        }
+    };
+    /* golden ratio increment of SplitMix64 */
+    static final long GOLDEN_GAMMA = 0x9e3779b9_7f4a7c15L;
+
+    /**
+     * Versions of the scheme used to turn seeds into generator states, see
+     * {@link #setSeedScheme(SeedScheme)}. The state produced from a given seed
+     * by a given scheme will not change in later releases.
+     */
+    public enum SeedScheme {
+
+        /**
+         * Version 0, the default, {@link #hashSeed(long[])}: chained SHA-512
+         * digests, one digest per state word.
+         */
+        SHA512_CHAIN,
+        /**
+         * Version 1, {@link #hashSeedFull(long[])}: chained SHA-512 digests
+         * of which all 512 bits are used, one digest per 8 state words.
+         */
+        SHA512_FULL,
+        /**
+         * Version 2, {@link #mixSeed(long[])}: SplitMix64 style mixing, no
+         * secure hashing.
+         */
+        MIX64
+    }
+
+    /* the scheme used by setSeed() */
+    private SeedScheme seed_scheme = SeedScheme.SHA512_CHAIN;
+
+    /**
+     * Methods of generating normal doubles in {@link #nextGaussian()}, see
+     * {@link #setGaussianMode(GaussianMode)}.
+     */
+    public enum GaussianMode {
+
+        /**
+         * The default, the Box-Muller transform of super: two uniform doubles
+         * and log, sqrt, sin and cos per pair of normal doubles.
+         */
+        BOX_MULLER,
+        /**
+         * The Ziggurat method of {@link ZigguratGaussianRandomGenerator}: one
+         * long per normal double in the common case.
+         */
+        ZIGGURAT
+    }
+
+    /* the method used by nextGaussian() */
+    private GaussianMode gaussian_mode = GaussianMode.BOX_MULLER;
 
     /* from Random */
     private static final double DOUBLE_UNIT = 0x1.0p-53;
     /* when a gaussian is requested, the algorithm always produces two, and one is stored */
-    private double nextGaussian;
+    private double nextGaussian = Double.NaN;
     /* when requesting an int, a long is created, and the 32 LSBs are stored */
     private int intLeft = 0;
     /* true if there are 32 bits left. */
     private boolean isIntLeft = false;
+    /* true if next(int bits) hands out bits from the reservoir */
+    private boolean bit_reservoir = false;
+    /* reservoir of bits, the unused bits are the reservoir_bits MSBs */
+    private long reservoir;
+    /* count of unused bits in the reservoir */
+    private int reservoir_bits = 0;
+    /* longs of the stored values and modes in saveState() */
+    private static final int CACHE_WORDS = 4;
+    /* bytes of the stored values and modes in writeState(), at most */
+    private static final int MAX_CACHE_BYTES = 1 + Double.BYTES + Integer.BYTES + 1 + Long.BYTES;
+    /* version of the writeState() format */
+    private static final byte STATE_FORMAT = 1;
 
     /**
      * For 64 bit generators, {@link #nextL(int bits)} is the core generator
@@ -72,6 +173,9 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
      */
     @Override
     protected int next(int bits) {
+        if (bit_reservoir) {
+            return nextReservoir(bits);
+        }
         if (isIntLeft) {
             isIntLeft = false;
             return intLeft >>> (Integer.SIZE - bits);
@@ -80,6 +184,59 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
         }
     }
 
+    /**
+     * Hands out the requested bits from the MSB end of the reservoir, drawing
+     * a new long when the reservoir runs out.
+     *
+     * @param bits count of bits, 1 to 32
+     * @return the bits as the LSBs of an int
+     */
+    private int nextReservoir(int bits) {
+        if (reservoir_bits >= bits) {
+            int r = (int) (reservoir >>> (WORD_BITS - bits));
+            reservoir <<= bits;
+            reservoir_bits -= bits;
+            return r;
+        }
+        // use up the reservoir and take the rest from a new long
+        final int need = bits - reservoir_bits;
+        final long fresh = nextL(WORD_BITS);
+        long r = reservoir_bits == 0 ? 0 : reservoir >>> (WORD_BITS - reservoir_bits);
+        r = (r << need) | (fresh >>> (WORD_BITS - need));
+        reservoir = fresh << need;
+        reservoir_bits = WORD_BITS - need;
+        return (int) r;
+    }
+
+    /**
+     * Opt-in bit reservoir mode. When on, {@link #next(int)} keeps the unused
+     * bits of a 64-bit draw and hands out exactly the requested count of bits,
+     * so eg. {@link #nextBoolean()} uses 1 bit instead of 32, 64 booleans per
+     * draw, and {@link #nextFloat()} 24 bits instead of 32. {@link #nextInt()}
+     * takes 32 bits from the reservoir and {@link #nextInt(int)} takes only
+     * log2(n) bits when n is a power of two. Methods drawing whole longs, eg.
+     * {@link #nextLong()} and {@link #nextDouble()}, do not use the reservoir.
+     * Off by default, turning the mode on or off empties the reservoir and the
+     * stored 32 bit half of nextInt().
+     *
+     * @param on true to turn the bit reservoir on
+     */
+    public void setBitReservoir(boolean on) {
+        bit_reservoir = on;
+        reservoir_bits = 0;
+        isIntLeft = false;
+    }
+
+    /**
+     * Returns true if bit reservoir mode is on, see
+     * {@link #setBitReservoir(boolean)}.
+     *
+     * @return true if bit reservoir mode is on
+     */
+    public boolean isBitReservoir() {
+        return bit_reservoir;
+    }
+
     /**
      * Since we have a 64-bit generator, we use a long returning function as the
      * core generator function which is used by all other functions.
@@ -91,50 +248,208 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
 
     @Override
     public int nextInt() {
+        if (bit_reservoir) {
+            return nextReservoir(Integer.SIZE);
+        }
         if (isIntLeft) {
             // use the 32 LSBs of the long already generated
             isIntLeft = false;
             return intLeft;
         } else {
             // generate a new pair of integers (long split in half)
-            long t = nextLong();
-            intLeft = (int) t; // 32 LSBs stored
-            isIntLeft = true;
-            return (int) (t >>> Integer.SIZE); // 32 MSBs returned
+            return pairInts(nextLong());
         }
     }
 
+    /**
+     * Tells whether {@link #nextInt()} would be served from stored bits, the
+     * int half of an earlier long or the bit reservoir, without drawing a new
+     * long. Subclasses overriding {@link #nextInt()} with an inlined state
+     * update call <code>super.nextInt()</code> when this is true and
+     * {@link #pairInts(long)} on a fresh long otherwise.
+     *
+     * @return true if no new long is needed for the next int
+     */
+    protected final boolean hasStoredInt() {
+        return bit_reservoir || isIntLeft;
+    }
+
+    /**
+     * Splits a fresh long into two ints, returning the 32 MSBs and storing
+     * the 32 LSBs for the next call of {@link #nextInt()}.
+     *
+     * @param t the long
+     * @return the 32 MSBs of t
+     */
+    protected final int pairInts(long t) {
+        intLeft = (int) t; // 32 LSBs stored
+        isIntLeft = true;
+        return (int) (t >>> Integer.SIZE); // 32 MSBs returned
+    }
+
     @Override
     public long nextLong() {
         return nextL(WORD_BITS);
     }
 
+    /**
+     * Returns a pseudorandom, uniformly distributed {@code int} value between 0
+     * (inclusive) and the specified value (exclusive), drawn from this random
+     * number generator's sequence. Uses the nearly divisionless method of
+     * Lemire, "Fast Random Integer Generation in an Interval", ACM TOMACS
+     * 29(1), 2019: the bound is multiplied by a 32-bit {@link #nextInt()} and
+     * the high 32 bits of the product are returned, a division is needed
+     * only when the low 32 bits fall in the small biased range.
+     *
+     * @param n the bound on the random number to be returned. Must be positive.
+     * @return a pseudorandom, uniformly distributed {@code int} value between
+     * 0 (inclusive) and n (exclusive).
+     * @throws NotStrictlyPositiveException if n is not positive.
+     */
+    @Override
+    public int nextInt(int n) throws IllegalArgumentException {
+        if (n > 0) {
+            if (bit_reservoir && (n & (n - 1)) == 0) {
+                return n == 1 ? 0 : nextReservoir(Integer.numberOfTrailingZeros(n));
+            }
+            return nextIntUnsigned(n);
+        }
+        throw new NotStrictlyPositiveException(n);
+    }
+
     /**
      * Returns a pseudorandom, uniformly distributed {@code long} value between
      * 0 (inclusive) and the specified value (exclusive), drawn from this random
-     * number generator's sequence. Identical with super, except with long
-     * primitives we need just one call to nextL(int bits).
+     * number generator's sequence. With long primitives we need just one call
+     * to nextL(int bits) per try, the nearly divisionless method of Lemire is
+     * used as in {@link #nextInt(int)}, with the high 64 bits of the 128 bit
+     * product from {@link Math#multiplyHigh(long, long)}.
      *
      * @param n the bound on the random number to be returned. Must be positive.
      * @return a pseudorandom, uniformly distributed {@code long} value between
      * 0 (inclusive) and n (exclusive).
-     * @throws IllegalArgumentException if n is not positive.
+     * @throws NotStrictlyPositiveException if n is not positive.
      */
     @Override
     public long nextLong(long n) throws IllegalArgumentException {
         if (n > 0) {
-            long bits;
-            long val;
-            do {
-                // the only modification, 2 * next() => 1 * nextL()
-                bits = nextL(63);
-                val = bits % n;
-            } while (bits - val + (n - 1) < 0);
-            return val;
+            return nextLongUnsigned(n);
         }
         throw new NotStrictlyPositiveException(n);
     }
 
+    /**
+     * Returns a uniformly distributed int from lo to hi, both inclusive. The
+     * full range from Integer.MIN_VALUE to Integer.MAX_VALUE is allowed.
+     *
+     * @param lo the least value
+     * @param hi the greatest value
+     * @return a uniformly distributed int from [lo, hi]
+     * @throws NumberIsTooLargeException if lo &gt; hi
+     */
+    public int nextIntInclusive(int lo, int hi) {
+        if (lo > hi) {
+            throw new NumberIsTooLargeException(lo, hi, true);
+        }
+        int range = hi - lo + 1; // unsigned, 0 for the full range
+        if (range == 0) {
+            return nextInt();
+        }
+        return lo + nextIntUnsigned(range);
+    }
+
+    /**
+     * Returns a uniformly distributed long from lo to hi, both inclusive. The
+     * full range from Long.MIN_VALUE to Long.MAX_VALUE is allowed.
+     *
+     * @param lo the least value
+     * @param hi the greatest value
+     * @return a uniformly distributed long from [lo, hi]
+     * @throws NumberIsTooLargeException if lo &gt; hi
+     */
+    public long nextLongInclusive(long lo, long hi) {
+        if (lo > hi) {
+            throw new NumberIsTooLargeException(lo, hi, true);
+        }
+        long range = hi - lo + 1; // unsigned, 0 for the full range
+        if (range == 0) {
+            return nextL(WORD_BITS);
+        }
+        return lo + nextLongUnsigned(range);
+    }
+
+    /**
+     * Returns a uniformly distributed int from origin (inclusive) to bound
+     * (exclusive), with the semantics of java.util.random.RandomGenerator.
+     *
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return a uniformly distributed int from [origin, bound)
+     * @throws NumberIsTooLargeException if origin &ge; bound
+     */
+    public int nextInt(int origin, int bound) {
+        if (origin >= bound) {
+            throw new NumberIsTooLargeException(origin, bound, false);
+        }
+        return origin + nextIntUnsigned(bound - origin);
+    }
+
+    /**
+     * Returns a uniformly distributed long from origin (inclusive) to bound
+     * (exclusive), with the semantics of java.util.random.RandomGenerator.
+     *
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return a uniformly distributed long from [origin, bound)
+     * @throws NumberIsTooLargeException if origin &ge; bound
+     */
+    public long nextLong(long origin, long bound) {
+        if (origin >= bound) {
+            throw new NumberIsTooLargeException(origin, bound, false);
+        }
+        return origin + nextLongUnsigned(bound - origin);
+    }
+
+    /**
+     * Lemire's method for an unsigned 32-bit bound n &ne; 0.
+     *
+     * @param n the bound as an unsigned int
+     * @return an int from [0, n) as an unsigned int
+     */
+    private int nextIntUnsigned(int n) {
+        final long bound = n & LSB32_MASK_LONG;
+        long m = (nextInt() & LSB32_MASK_LONG) * bound;
+        long l = m & LSB32_MASK_LONG;
+        if (l < bound) {
+            final long t = ((1L << Integer.SIZE) - bound) % bound; // 2^32 mod n
+            while (l < t) {
+                m = (nextInt() & LSB32_MASK_LONG) * bound;
+                l = m & LSB32_MASK_LONG;
+            }
+        }
+        return (int) (m >>> Integer.SIZE);
+    }
+
+    /**
+     * Lemire's method for an unsigned 64-bit bound n &ne; 0.
+     *
+     * @param n the bound as an unsigned long
+     * @return a long from [0, n) as an unsigned long
+     */
+    private long nextLongUnsigned(long n) {
+        long x = nextL(WORD_BITS);
+        long l = x * n;
+        if (Long.compareUnsigned(l, n) < 0) {
+            final long t = Long.remainderUnsigned(-n, n); // 2^64 mod n
+            while (Long.compareUnsigned(l, t) < 0) {
+                x = nextL(WORD_BITS);
+                l = x * n;
+            }
+        }
+        // unsigned high 64 bits of x * n from the signed ones
+        return Math.multiplyHigh(x, n) + ((x >> 63) & n) + ((n >> 63) & x);
+    }
+
     /**
      * Returns float from Uniform(0,1).
      *
@@ -155,14 +470,317 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
         return nextL(53) * DOUBLE_UNIT;
     }
 
+    /**
+     * Returns double from the open interval (0,1). The values are the odd
+     * multiples of 2^-53, so neither 0 nor 1 can occur and the result can be
+     * passed to {@link Math#log(double)} or an inverse cdf without checks.
+     *
+     * @return the double
+     */
+    public double nextDoubleOpen() {
+        return (nextL(52) << 1 | 1L) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Returns double from the closed interval [0,1]. The values are the
+     * multiples of 2^-53 from 0 to 1 inclusive, the two endpoints having half
+     * the probability of the interior points, as if a continuous uniform
+     * variate were rounded to the nearest multiple.
+     *
+     * @return the double
+     */
+    public double nextDoubleClosed() {
+        final long x = nextL(54);
+        return ((x >>> 1) + (x & 1L)) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Returns double from [lo, hi), with the semantics of
+     * {@link java.util.random.RandomGenerator#nextDouble(double, double)}.
+     *
+     * @param lo the least value
+     * @param hi the upper bound, exclusive
+     * @return the double
+     * @throws NumberIsTooLargeException if lo is not less than hi
+     * @throws NotFiniteNumberException if hi - lo is not finite
+     */
+    public double nextDouble(double lo, double hi) {
+        checkDoubleRange(lo, hi);
+        return nextDoubleUnchecked(lo, hi);
+    }
+
+    /**
+     * Scales {@link #nextDouble()} to [lo, hi) for a range already checked
+     * with {@link #checkDoubleRange(double, double)}.
+     *
+     * @param lo the least value
+     * @param hi the upper bound, exclusive
+     * @return the double
+     */
+    private double nextDoubleUnchecked(double lo, double hi) {
+        final double r = lo + nextDouble() * (hi - lo);
+        return r < hi ? r : Math.nextDown(hi); // rounding
+    }
+
+    /**
+     * Checks that [lo, hi) is a nonempty range of finite width.
+     *
+     * @param lo the least value
+     * @param hi the upper bound, exclusive
+     */
+    private static void checkDoubleRange(double lo, double hi) {
+        if (!(lo < hi)) {
+            throw new NumberIsTooLargeException(lo, hi, false);
+        }
+        final double width = hi - lo;
+        if (Double.isInfinite(width)) {
+            throw new NotFiniteNumberException(width);
+        }
+    }
+
+    /**
+     * Fills the array with longs, equivalent to calling {@link #nextLong()}
+     * once for each element.
+     *
+     * @param dst the array to fill
+     */
+    public void nextLongs(long[] dst) {
+        nextLongs(dst, 0, dst.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with longs, equivalent to calling {@link #nextLong()}
+     * once for each element. Subclasses may override this with a loop over
+     * their local state, the generated sequence must stay identical.
+     *
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    public void nextLongs(long[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = nextL(WORD_BITS);
+        }
+    }
+
+    /**
+     * Fills the array with doubles from Uniform(0,1), equivalent to calling
+     * {@link #nextDouble()} once for each element.
+     *
+     * @param dst the array to fill
+     */
+    public void nextDoubles(double[] dst) {
+        nextDoubles(dst, 0, dst.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with doubles from Uniform(0,1), equivalent to calling
+     * {@link #nextDouble()} once for each element.
+     *
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    public void nextDoubles(double[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = nextL(53) * DOUBLE_UNIT;
+        }
+    }
+
+    /**
+     * Fills the array with ints, equivalent to calling {@link #nextInt()} once
+     * for each element.
+     *
+     * @param dst the array to fill
+     */
+    public void nextInts(int[] dst) {
+        nextInts(dst, 0, dst.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with ints, equivalent to calling {@link #nextInt()} once
+     * for each element. A stored 32 bit half is used first and, if an odd
+     * number of ints is left, the 32 LSBs of the last long are stored.
+     *
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    public void nextInts(int[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        int i = off;
+        final int end = off + len;
+        if (bit_reservoir) {
+            for (; i < end; i++) {
+                dst[i] = nextReservoir(Integer.SIZE);
+            }
+            return;
+        }
+        if (isIntLeft && i < end) {
+            isIntLeft = false;
+            dst[i++] = intLeft;
+        }
+        for (final int pairs_end = end - ((end - i) & 1); i < pairs_end; i += 2) {
+            long t = nextL(WORD_BITS);
+            dst[i] = (int) (t >>> Integer.SIZE);
+            dst[i + 1] = (int) t;
+        }
+        if (i < end) {
+            dst[i] = nextInt();
+        }
+    }
+
+    /**
+     * Fills the array with floats from Uniform(0,1), equivalent to calling
+     * {@link #nextFloat()} once for each element.
+     *
+     * @param dst the array to fill
+     */
+    public void nextFloats(float[] dst) {
+        nextFloats(dst, 0, dst.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with floats from Uniform(0,1), equivalent to calling
+     * {@link #nextFloat()} once for each element.
+     *
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    public void nextFloats(float[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        final float unit = 1f / (1 << 24);
+        int i = off;
+        final int end = off + len;
+        if (bit_reservoir) {
+            for (; i < end; i++) {
+                dst[i] = nextReservoir(24) * unit;
+            }
+            return;
+        }
+        if (isIntLeft && i < end) {
+            isIntLeft = false;
+            dst[i++] = (intLeft >>> 8) * unit;
+        }
+        for (final int pairs_end = end - ((end - i) & 1); i < pairs_end; i += 2) {
+            long t = nextL(WORD_BITS);
+            dst[i] = (int) (t >>> 40) * unit;
+            dst[i + 1] = ((int) t >>> 8) * unit;
+        }
+        if (i < end) {
+            dst[i] = nextFloat();
+        }
+    }
+
+    /**
+     * Fills the array with random bytes. Unlike super, which uses 32 bits per
+     * call to {@link #next(int)}, each long from {@link #nextL(int)} yields 8
+     * bytes, least significant byte first. The stored 32 bit half of
+     * {@link #nextInt()} is neither used nor discarded.
+     *
+     * @param bytes the array to fill
+     */
+    @Override
+    public void nextBytes(byte[] bytes) {
+        nextBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>bytes</code> starting at
+     * <code>off</code> with random bytes, see {@link #nextBytes(byte[])}.
+     *
+     * @param bytes the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    public void nextBytes(byte[] bytes, int off, int len) {
+        checkBounds(bytes.length, off, len);
+        int i = off;
+        final int end = off + len;
+        for (final int words_end = end - ((end - i) & 7); i < words_end; i += Long.BYTES) {
+            long t = nextL(WORD_BITS);
+            bytes[i] = (byte) t;
+            bytes[i + 1] = (byte) (t >>> Byte.SIZE);
+            bytes[i + 2] = (byte) (t >>> 2 * Byte.SIZE);
+            bytes[i + 3] = (byte) (t >>> 3 * Byte.SIZE);
+            bytes[i + 4] = (byte) (t >>> 4 * Byte.SIZE);
+            bytes[i + 5] = (byte) (t >>> 5 * Byte.SIZE);
+            bytes[i + 6] = (byte) (t >>> 6 * Byte.SIZE);
+            bytes[i + 7] = (byte) (t >>> 7 * Byte.SIZE);
+        }
+        if (i < end) {
+            long t = nextL(WORD_BITS);
+            for (; i < end; i++) {
+                bytes[i] = (byte) t;
+                t >>>= Byte.SIZE;
+            }
+        }
+    }
+
+    /**
+     * Fills the remaining bytes of the buffer, from its position to its limit,
+     * with random bytes and advances the position to the limit. Whole longs
+     * are written with {@link ByteBuffer#putLong(long)} in the byte order of
+     * the buffer, any remaining tail bytes least significant byte first. Works
+     * with both heap and direct buffers.
+     *
+     * @param buffer the buffer to fill
+     */
+    public void nextBytes(ByteBuffer buffer) {
+        for (int words = buffer.remaining() / Long.BYTES; words > 0; words--) {
+            buffer.putLong(nextL(WORD_BITS));
+        }
+        if (buffer.hasRemaining()) {
+            long t = nextL(WORD_BITS);
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) t);
+                t >>>= Byte.SIZE;
+            }
+        }
+    }
+
+    /**
+     * Checks that <code>len</code> elements starting at <code>off</code> fit
+     * in an array of length <code>array_len</code>.
+     *
+     * @param array_len length of the array
+     * @param off index of the first element
+     * @param len number of elements
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    protected static void checkBounds(int array_len, int off, int len) {
+        if (off < 0 || off > array_len) {
+            throw new OutOfRangeException(off, 0, array_len);
+        }
+        if (len < 0 || len > array_len - off) {
+            throw new OutOfRangeException(len, 0, array_len - off);
+        }
+    }
+
     /**
      * Copied verbatim from super, need to re-implement here since some
-     * persistent state used is private in super.
+     * persistent state used is private in super. In
+     * {@link GaussianMode#ZIGGURAT} mode the Ziggurat method is used instead.
      *
      * @return
      */
     @Override
     public double nextGaussian() {
+        if (gaussian_mode == GaussianMode.ZIGGURAT) {
+            return ZigguratGaussianRandomGenerator.nextGaussian(this);
+        }
         final double random;
         if (Double.isNaN(nextGaussian)) {
             // generate a new pair of gaussian numbers
@@ -181,15 +799,54 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
         return random;
     }
 
+    /**
+     * Returns an exponential double with mean 1, drawn with the Ziggurat
+     * method of {@link ZigguratExponentialRandomGenerator}.
+     *
+     * @return a double from Exp(1)
+     */
+    public double nextExponential() {
+        return ZigguratExponentialRandomGenerator.nextExponential(this);
+    }
+
+    /**
+     * Selects the method used by {@link #nextGaussian()},
+     * {@link GaussianMode#BOX_MULLER} by default so that existing seeds keep
+     * producing the same normal doubles. Generators in
+     * {@link GaussianMode#ZIGGURAT} mode also speed up users of nextGaussian()
+     * such as NormalDistribution. The stored second normal double of the
+     * Box-Muller method is discarded.
+     *
+     * @param mode the Gaussian mode
+     * @throws NullArgumentException if mode is null
+     */
+    public void setGaussianMode(GaussianMode mode) {
+        if (mode == null) {
+            throw new NullArgumentException();
+        }
+        gaussian_mode = mode;
+        nextGaussian = Double.NaN;
+    }
+
+    /**
+     * Returns the method used by {@link #nextGaussian()}.
+     *
+     * @return the Gaussian mode
+     */
+    public GaussianMode getGaussianMode() {
+        return gaussian_mode;
+    }
+
     /**
      * Attention: subclassing generators need to call this when re-seeding to
      * properly reset the generator, calling reset will zero the storage of the
-     * next gaussian and next integer.
+     * next gaussian, next integer and the bit reservoir.
      */
     @Override
     public void clear() {
         nextGaussian = Double.NaN;
         isIntLeft = false;
+        reservoir_bits = 0;
     }
 
     /**
@@ -225,20 +882,68 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
             timeSeed();
             return;
         }
-        setState(hashSeed(seed_in));
+        switch (seed_scheme) {
+            case SHA512_FULL:
+                setState(hashSeedFull(seed_in));
+                break;
+            case MIX64:
+                setState(mixSeed(seed_in));
+                break;
+            default:
+                setState(hashSeed(seed_in));
+        }
+    }
+
+    /**
+     * Selects the scheme used by the setSeed() methods to turn seeds into
+     * generator states, {@link SeedScheme#SHA512_CHAIN} by default. The
+     * current state is not changed.
+     *
+     * @param scheme the seed scheme
+     * @throws NullArgumentException if scheme is null
+     */
+    public void setSeedScheme(SeedScheme scheme) {
+        if (scheme == null) {
+            throw new NullArgumentException();
+        }
+        seed_scheme = scheme;
+    }
+
+    /**
+     * Returns the scheme used by the setSeed() methods.
+     *
+     * @return the seed scheme
+     */
+    public SeedScheme getSeedScheme() {
+        return seed_scheme;
     }
 
     /**
-     * nanoTime() is increasing and uniqueSeed() is strictly increasing so no
-     * two timeSeed() invocations should use the same seed (the underlying long
-     * will overflow in less than 2^64 invocations however).
+     * Seeds with the pair {nanoTime(), uniqueSeed()}. uniqueSeed() never
+     * returns the same value twice so no two timeSeed() invocations, in any
+     * threads, use the same seed (the underlying long will overflow in less
+     * than 2^64 invocations however). Time seeds are not reproducible so the
+     * seed is mixed with {@link #mixSeed(long[])} regardless of the seed
+     * scheme, no secure hashing is done.
      */
     void timeSeed() {
-        setSeed(System.nanoTime() + uniqueSeed());
+        setState(mixSeed(new long[]{System.nanoTime(), uniqueSeed()}));
     }
 
+    /**
+     * Returns a value not returned before by any thread. Each thread reserves
+     * a block of values from a shared atomic counter and hands them out
+     * without synchronization, so concurrent callers rarely contend.
+     *
+     * @return the unique value
+     */
     static long uniqueSeed() {
-        return seed_uniquefier++;
+        long[] block = unique_block.get();
+        if (block[0] == block[1]) {
+            block[0] = seed_uniquefier.getAndAdd(UNIQUE_BLOCK);
+            block[1] = block[0] + UNIQUE_BLOCK;
+        }
+        return block[0]++;
     }
 
     /**
@@ -256,12 +961,8 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
         // prepare to hash seed
         int seed_len = seed_in.length;
         long[] seed_out = new long[STATE_WORDS];
-        MessageDigest md = null;
-        try {
-            md = MessageDigest.getInstance("SHA-512");
-        } catch (Exception e) { //SHA-512 should be available in java 1.5+
-            throw new RuntimeException(null, e);
-        }
+        MessageDigest md = sha512.get();
+        md.reset();
         int digest_count = (STATE_BITS - 1) / md.getDigestLength() + 1;
         int digest_bytes = md.getDigestLength() / Byte.SIZE;
         if (seed_len > digest_count) {
@@ -292,10 +993,74 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
         return seed_out;
     }
 
-//    public void mixSeed(int seed) {
-//        long mixer = Double.doubleToRawLongBits(FastMath.sin(seed));
-//
-//    }
+    /**
+     * Will hash the seed with the SHA-512 digest using all bits of each
+     * digest, so a 1024 bit state needs 2 digests instead of the 16 of
+     * {@link #hashSeed(long[])}. All seed longs are hashed into the first
+     * digest and each following digest is the digest of the previous one. The
+     * digest of the calling thread is reused.
+     *
+     * @param seed_in the seed
+     * @return hashed state array of longs
+     */
+    public long[] hashSeedFull(long[] seed_in) {
+        long[] seed_out = new long[STATE_WORDS];
+        MessageDigest md = sha512.get();
+        md.reset();
+        byte[] t = new byte[md.getDigestLength()];
+        for (long seed : seed_in) {
+            for (int i = 0; i < Long.BYTES; i++) {
+                t[i] = (byte) (seed >>> (7 - i) * Byte.SIZE);
+            }
+            md.update(t, 0, Long.BYTES);
+        }
+        int words = t.length / Long.BYTES;
+        for (int w = 0; w < STATE_WORDS; w++) {
+            if (w % words == 0) {
+                if (w > 0) {
+                    md.update(t);
+                }
+                try {
+                    md.digest(t, 0, t.length);
+                } catch (DigestException e) {
+                    throw new RuntimeException(null, e);
+                }
+            }
+            long r = 0;
+            for (int i = (w % words) * Long.BYTES, end = i + Long.BYTES; i < end; i++) {
+                r = (r << Byte.SIZE) | (t[i] & 0xFFL);
+            }
+            seed_out[w] = r;
+        }
+        return seed_out;
+    }
+
+    /**
+     * Will mix the seed into a state with SplitMix64 style mixing. Each seed
+     * long is absorbed by xoring it into a running value which is then mixed
+     * with {@link #mix64(long)}, the state words are then the outputs of a
+     * SplitMix64 generator started from the running value. Much faster than
+     * secure hashing, all seed bits affect all state bits.
+     *
+     * @param seed_in the seed
+     * @return mixed state array of longs
+     */
+    public long[] mixSeed(long[] seed_in) {
+        long[] seed_out = new long[STATE_WORDS];
+        long z = mix64(seed_in.length + GOLDEN_GAMMA);
+        for (long seed : seed_in) {
+            z = mix64(z ^ seed) + GOLDEN_GAMMA;
+        }
+        long nonzero = 0;
+        for (int i = 0; i < STATE_WORDS; i++) {
+            seed_out[i] = mix64(z += GOLDEN_GAMMA);
+            nonzero |= seed_out[i];
+        }
+        if (nonzero == 0) { // all zero state would only produce zeroes
+            seed_out[0] = 1L;
+        }
+        return seed_out;
+    }
 
     /**
      * Seed with strictly positive long seed. The high and low 32 bits of seed
@@ -337,4 +1102,751 @@ public abstract class BitsStreamGenerator64 extends BitsStreamGenerator {
     }
 
     public abstract void setState(Object state);
+
+    /**
+     * Returns a new generator whose state is derived from the output of this
+     * generator, in the spirit of java.util.SplittableRandom. This generator
+     * is advanced by the draws used. Both generators may be split further,
+     * eg. in recursive fork/join tasks, without central coordination.
+     *
+     * @return the new generator
+     */
+    public abstract BitsStreamGenerator64 split();
+
+    /**
+     * Returns a generator for the part of a stream split off by
+     * {@link Spliterator#trySplit()} and moves this generator so that the two
+     * do not produce overlapping sequences. The depth is the count of splits
+     * leading to the spliterator being split. This implementation returns
+     * {@link #split()}.
+     *
+     * @param depth the split depth
+     * @return the generator for the split off part
+     */
+    protected BitsStreamGenerator64 splitForStream(int depth) {
+        return split();
+    }
+
+    /**
+     * Copies the values stored between calls, the stored gaussian, int half
+     * and bit reservoir, and the modes from other, for copies of generators.
+     *
+     * @param other the generator copied
+     */
+    protected final void copyStoredValues(BitsStreamGenerator64 other) {
+        nextGaussian = other.nextGaussian;
+        intLeft = other.intLeft;
+        isIntLeft = other.isIntLeft;
+        bit_reservoir = other.bit_reservoir;
+        reservoir = other.reservoir;
+        reservoir_bits = other.reservoir_bits;
+        gaussian_mode = other.gaussian_mode;
+        seed_scheme = other.seed_scheme;
+    }
+
+    /**
+     * Returns the count of longs written by {@link #saveState(long[], int)}.
+     *
+     * @return the state length in longs
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public int getStateLength() {
+        return getGeneratorStateLength() + CACHE_WORDS;
+    }
+
+    /**
+     * Writes the complete state to the start of dst, see
+     * {@link #saveState(long[], int)}.
+     *
+     * @param dst the destination
+     * @throws NumberIsTooSmallException if dst is shorter than
+     * {@link #getStateLength()}
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void saveState(long[] dst) {
+        saveState(dst, 0);
+    }
+
+    /**
+     * Writes the complete state to {@link #getStateLength()} elements of dst
+     * starting at off, without allocation. Unlike the state of
+     * {@link #setState(Object)} this includes the position in the state of
+     * the generator, the stored gaussian and int half, the bit reservoir and
+     * the modes, so {@link #restoreState(long[], int)} continues the
+     * sequence exactly where it was saved.
+     *
+     * @param dst the destination
+     * @param off index of the first element written
+     * @throws NumberIsTooSmallException if fewer than
+     * {@link #getStateLength()} elements follow off
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void saveState(long[] dst, int off) {
+        final int len = getGeneratorStateLength();
+        checkStateLength(dst.length, off, len + CACHE_WORDS);
+        saveGeneratorState(dst, off);
+        off += len;
+        dst[off] = Double.doubleToRawLongBits(nextGaussian);
+        dst[off + 1] = (intLeft & LSB32_MASK_LONG) | (isIntLeft ? 1L << Integer.SIZE : 0);
+        dst[off + 2] = reservoir;
+        dst[off + 3] = reservoir_bits | (bit_reservoir ? 1L << 8 : 0)
+                | (long) gaussian_mode.ordinal() << 9 | (long) seed_scheme.ordinal() << 12;
+    }
+
+    /**
+     * Restores the complete state from the start of src, see
+     * {@link #restoreState(long[], int)}.
+     *
+     * @param src the source
+     * @throws NumberIsTooSmallException if src is shorter than
+     * {@link #getStateLength()}
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void restoreState(long[] src) {
+        restoreState(src, 0);
+    }
+
+    /**
+     * Restores the complete state written by {@link #saveState(long[], int)}
+     * from {@link #getStateLength()} elements of src starting at off, without
+     * allocation.
+     *
+     * @param src the source
+     * @param off index of the first element read
+     * @throws NumberIsTooSmallException if fewer than
+     * {@link #getStateLength()} elements follow off
+     * @throws OutOfRangeException if the state is not valid
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void restoreState(long[] src, int off) {
+        checkState(src, off);
+        restoreGeneratorState(src, off);
+        off += getGeneratorStateLength();
+        final long modes = src[off + 3];
+        nextGaussian = Double.longBitsToDouble(src[off]);
+        intLeft = (int) src[off + 1];
+        isIntLeft = (src[off + 1] & 1L << Integer.SIZE) != 0;
+        reservoir = src[off + 2];
+        reservoir_bits = (int) modes & 0xff;
+        bit_reservoir = (modes & 1L << 8) != 0;
+        gaussian_mode = GaussianMode.values()[(int) (modes >>> 9) & 7];
+        seed_scheme = SeedScheme.values()[(int) (modes >>> 12) & 7];
+    }
+
+    /**
+     * Checks the complete state written by {@link #saveState(long[], int)}
+     * in {@link #getStateLength()} elements of src starting at off as
+     * {@link #restoreState(long[], int)} does, without restoring it. For
+     * restoring the states of several generators all or nothing.
+     *
+     * @param src the source
+     * @param off index of the first element read
+     * @throws NumberIsTooSmallException if fewer than
+     * {@link #getStateLength()} elements follow off
+     * @throws OutOfRangeException if the state is not valid
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void checkState(long[] src, int off) {
+        final int len = getGeneratorStateLength();
+        checkStateLength(src.length, off, len + CACHE_WORDS);
+        final long modes = src[off + len + 3];
+        checkOrdinals((int) (modes >>> 9) & 7, (int) (modes >>> 12) & 7);
+        final int bits = (int) modes & 0xff;
+        if (bits > WORD_BITS) {
+            throw new OutOfRangeException(bits, 0, WORD_BITS);
+        }
+        checkGeneratorState(src, off);
+    }
+
+    /**
+     * Returns the largest count of bytes written by
+     * {@link #writeState(ByteBuffer)}.
+     *
+     * @return the maximum state size in bytes
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public int getMaxStateBytes() {
+        return 1 + getGeneratorStateLength() * Long.BYTES + MAX_CACHE_BYTES;
+    }
+
+    /**
+     * Writes the complete state, as saved by {@link #saveState(long[], int)},
+     * to the buffer in a compact versioned format: a format version byte, the
+     * state of the generator and a flags byte followed by only those of the
+     * stored gaussian, int half and bit reservoir that are in use. The
+     * buffer position is advanced past the written bytes, at most
+     * {@link #getMaxStateBytes()}.
+     *
+     * @param dst the buffer
+     * @throws java.nio.BufferOverflowException if the state does not fit in
+     * the buffer
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void writeState(ByteBuffer dst) {
+        dst.put(STATE_FORMAT);
+        writeGeneratorState(dst);
+        final boolean has_gaussian = !Double.isNaN(nextGaussian);
+        final boolean has_reservoir = bit_reservoir && reservoir_bits > 0;
+        dst.put((byte) ((has_gaussian ? 1 : 0) | (isIntLeft ? 2 : 0)
+                | (bit_reservoir ? 4 : 0) | (has_reservoir ? 8 : 0)
+                | gaussian_mode.ordinal() << 4 | seed_scheme.ordinal() << 6));
+        if (has_gaussian) {
+            dst.putDouble(nextGaussian);
+        }
+        if (isIntLeft) {
+            dst.putInt(intLeft);
+        }
+        if (has_reservoir) {
+            dst.put((byte) reservoir_bits);
+            dst.putLong(reservoir);
+        }
+    }
+
+    /**
+     * Restores the complete state written by {@link #writeState(ByteBuffer)}
+     * from the buffer, advancing the buffer position past the read bytes.
+     * The state is decoded and checked in full before any of it is restored,
+     * if an exception is thrown the generator is unchanged.
+     *
+     * @param src the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the
+     * state
+     * @throws OutOfRangeException if the format version is not known or the
+     * state is not valid
+     * @throws MathUnsupportedOperationException if the generator does not
+     * support snapshots
+     */
+    public void readState(ByteBuffer src) {
+        final byte format = src.get();
+        if (format != STATE_FORMAT) {
+            throw new OutOfRangeException(format, STATE_FORMAT, STATE_FORMAT);
+        }
+        // decoded into the layout of saveState(), restoreState() checks the
+        // generator state and commits
+        final int len = getGeneratorStateLength();
+        final long[] state = new long[len + CACHE_WORDS];
+        readGeneratorState(src, state, 0);
+        final int flags = src.get();
+        final int gaussian_ordinal = (flags >>> 4) & 3;
+        final int scheme_ordinal = (flags >>> 6) & 3;
+        checkOrdinals(gaussian_ordinal, scheme_ordinal);
+        state[len] = Double.doubleToRawLongBits((flags & 1) != 0 ? src.getDouble() : Double.NaN);
+        state[len + 1] = (flags & 2) != 0 ? (src.getInt() & LSB32_MASK_LONG) | 1L << Integer.SIZE : 0;
+        int bits = 0;
+        if ((flags & 8) != 0) {
+            bits = src.get();
+            if (bits < 1 || bits > WORD_BITS) {
+                throw new OutOfRangeException(bits, 1, WORD_BITS);
+            }
+            state[len + 2] = src.getLong();
+        }
+        state[len + 3] = bits | ((flags & 4) != 0 ? 1L << 8 : 0)
+                | (long) gaussian_ordinal << 9 | (long) scheme_ordinal << 12;
+        restoreState(state, 0);
+    }
+
+    /**
+     * Returns the count of longs of the generator's own state in the
+     * snapshots of {@link #saveState(long[], int)}. Generators supporting
+     * snapshots override this and the four other generator state methods
+     * that throw, and {@link #checkGeneratorState(long[], int)} if not every
+     * state is valid. This implementation throws.
+     *
+     * @return the generator state length in longs
+     * @throws MathUnsupportedOperationException always
+     */
+    protected int getGeneratorStateLength() {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Writes {@link #getGeneratorStateLength()} longs of the generator's own
+     * state, including any position in it, starting at dst[off]. Bounds have
+     * been checked.
+     *
+     * @param dst the destination
+     * @param off index of the first element written
+     * @throws MathUnsupportedOperationException always
+     */
+    protected void saveGeneratorState(long[] dst, int off) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Checks the generator's own state written by
+     * {@link #saveGeneratorState(long[], int)}, without changing the
+     * generator. Bounds have been checked. This implementation accepts any
+     * state.
+     *
+     * @param src the source
+     * @param off index of the first element read
+     * @throws OutOfRangeException if the state is not valid
+     */
+    protected void checkGeneratorState(long[] src, int off) {
+    }
+
+    /**
+     * Restores the generator's own state written by
+     * {@link #saveGeneratorState(long[], int)}. Bounds have been checked and
+     * the state has been checked with
+     * {@link #checkGeneratorState(long[], int)}. The values stored in this
+     * class are restored after this, so this must not call {@link #clear()}
+     * after them.
+     *
+     * @param src the source
+     * @param off index of the first element read
+     * @throws MathUnsupportedOperationException always
+     */
+    protected void restoreGeneratorState(long[] src, int off) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Writes the generator's own state to the buffer, at most
+     * {@link #getGeneratorStateLength()} longs worth of bytes.
+     *
+     * @param dst the buffer
+     * @throws MathUnsupportedOperationException always
+     */
+    protected void writeGeneratorState(ByteBuffer dst) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Reads the generator's own state written by
+     * {@link #writeGeneratorState(ByteBuffer)} into
+     * {@link #getGeneratorStateLength()} longs of dst starting at off, in the
+     * layout of {@link #saveGeneratorState(long[], int)}, without changing
+     * the generator. Bounds have been checked, the state is checked by
+     * {@link #restoreGeneratorState(long[], int)}.
+     *
+     * @param src the buffer
+     * @param dst the destination
+     * @param off index of the first element written
+     * @throws MathUnsupportedOperationException always
+     */
+    protected void readGeneratorState(ByteBuffer src, long[] dst, int off) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    private static void checkStateLength(int array_len, int off, int len) {
+        if (off < 0) {
+            throw new NotPositiveException(off);
+        }
+        if (array_len - off < len) {
+            throw new NumberIsTooSmallException(array_len - off, len, true);
+        }
+    }
+
+    private static void checkOrdinals(int gaussian_ordinal, int scheme_ordinal) {
+        if (gaussian_ordinal >= GaussianMode.values().length) {
+            throw new OutOfRangeException(gaussian_ordinal, 0, GaussianMode.values().length - 1);
+        }
+        if (scheme_ordinal >= SeedScheme.values().length) {
+            throw new OutOfRangeException(scheme_ordinal, 0, SeedScheme.values().length - 1);
+        }
+    }
+
+    /**
+     * Returns an effectively unlimited stream of longs, see
+     * {@link #longs(long)}.
+     *
+     * @return the stream
+     */
+    public LongStream longs() {
+        return longs(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a stream of size longs drawn with {@link #nextLong()}. A
+     * sequential stream draws from this generator. When the stream is split
+     * for parallel processing, eg. after {@link LongStream#parallel()}, each
+     * split off part draws from a generator returned by
+     * {@link #splitForStream(int)}, so no generator is shared between
+     * threads. The values are reproducible from the seed for a sequential
+     * stream and for a given sequence of splits.
+     *
+     * @param size the count of values
+     * @return the stream
+     * @throws NotPositiveException if size is negative
+     */
+    public LongStream longs(long size) {
+        checkStreamSize(size);
+        return StreamSupport.longStream(new LongsSpliterator(this, 0, size, Long.MAX_VALUE, 0, 0), false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of longs from origin (inclusive)
+     * to bound (exclusive), see {@link #longs(long)}.
+     *
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return the stream
+     * @throws NumberIsTooLargeException if origin is not less than bound
+     */
+    public LongStream longs(long origin, long bound) {
+        return longs(Long.MAX_VALUE, origin, bound);
+    }
+
+    /**
+     * Returns a stream of size longs from origin (inclusive) to bound
+     * (exclusive), see {@link #longs(long)}.
+     *
+     * @param size the count of values
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return the stream
+     * @throws NotPositiveException if size is negative
+     * @throws NumberIsTooLargeException if origin is not less than bound
+     */
+    public LongStream longs(long size, long origin, long bound) {
+        checkStreamSize(size);
+        if (origin >= bound) {
+            throw new NumberIsTooLargeException(origin, bound, false);
+        }
+        return StreamSupport.longStream(new LongsSpliterator(this, 0, size, origin, bound, 0), false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of ints, see {@link #ints(long)}.
+     *
+     * @return the stream
+     */
+    public IntStream ints() {
+        return ints(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a stream of size ints drawn with {@link #nextInt()}, split for
+     * parallel processing like {@link #longs(long)}.
+     *
+     * @param size the count of values
+     * @return the stream
+     * @throws NotPositiveException if size is negative
+     */
+    public IntStream ints(long size) {
+        checkStreamSize(size);
+        return StreamSupport.intStream(new IntsSpliterator(this, 0, size, Integer.MAX_VALUE, 0, 0), false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of ints from origin (inclusive)
+     * to bound (exclusive), see {@link #ints(long)}.
+     *
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return the stream
+     * @throws NumberIsTooLargeException if origin is not less than bound
+     */
+    public IntStream ints(int origin, int bound) {
+        return ints(Long.MAX_VALUE, origin, bound);
+    }
+
+    /**
+     * Returns a stream of size ints from origin (inclusive) to bound
+     * (exclusive), see {@link #ints(long)}.
+     *
+     * @param size the count of values
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return the stream
+     * @throws NotPositiveException if size is negative
+     * @throws NumberIsTooLargeException if origin is not less than bound
+     */
+    public IntStream ints(long size, int origin, int bound) {
+        checkStreamSize(size);
+        if (origin >= bound) {
+            throw new NumberIsTooLargeException(origin, bound, false);
+        }
+        return StreamSupport.intStream(new IntsSpliterator(this, 0, size, origin, bound, 0), false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of doubles from Uniform(0,1),
+     * see {@link #doubles(long)}.
+     *
+     * @return the stream
+     */
+    public DoubleStream doubles() {
+        return doubles(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a stream of size doubles from Uniform(0,1) drawn with
+     * {@link #nextDouble()}, split for parallel processing like
+     * {@link #longs(long)}.
+     *
+     * @param size the count of values
+     * @return the stream
+     * @throws NotPositiveException if size is negative
+     */
+    public DoubleStream doubles(long size) {
+        checkStreamSize(size);
+        return StreamSupport.doubleStream(new DoublesSpliterator(this, 0, size, Double.MAX_VALUE, 0.0, 0), false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of doubles from origin
+     * (inclusive) to bound (exclusive), see {@link #doubles(long)}.
+     *
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return the stream
+     * @throws NumberIsTooLargeException if origin is not less than bound
+     * @throws NotFiniteNumberException if bound - origin is not finite
+     */
+    public DoubleStream doubles(double origin, double bound) {
+        return doubles(Long.MAX_VALUE, origin, bound);
+    }
+
+    /**
+     * Returns a stream of size doubles from origin (inclusive) to bound
+     * (exclusive), see {@link #doubles(long)}.
+     *
+     * @param size the count of values
+     * @param origin the least value
+     * @param bound the upper bound, exclusive
+     * @return the stream
+     * @throws NotPositiveException if size is negative
+     * @throws NumberIsTooLargeException if origin is not less than bound
+     * @throws NotFiniteNumberException if bound - origin is not finite
+     */
+    public DoubleStream doubles(long size, double origin, double bound) {
+        checkStreamSize(size);
+        checkDoubleRange(origin, bound);
+        return StreamSupport.doubleStream(new DoublesSpliterator(this, 0, size, origin, bound, 0), false);
+    }
+
+    private static void checkStreamSize(long size) {
+        if (size < 0) {
+            throw new NotPositiveException(size);
+        }
+    }
+
+    /**
+     * Spliterator of longs from [origin, bound), or of unbounded longs if
+     * origin &ge; bound.
+     */
+    private static final class LongsSpliterator implements Spliterator.OfLong {
+
+        private final BitsStreamGenerator64 rng;
+        private long index;
+        private final long fence;
+        private final long origin;
+        private final long bound;
+        private int depth;
+
+        LongsSpliterator(BitsStreamGenerator64 rng, long index, long fence, long origin, long bound, int depth) {
+            this.rng = rng;
+            this.index = index;
+            this.fence = fence;
+            this.origin = origin;
+            this.bound = bound;
+            this.depth = depth;
+        }
+
+        private long next() {
+            if (origin >= bound) {
+                return rng.nextLong();
+            }
+            return rng.nextLong(origin, bound);
+        }
+
+        @Override
+        public LongsSpliterator trySplit() {
+            long i = index;
+            long m = (i + fence) >>> 1;
+            if (m <= i) {
+                return null;
+            }
+            index = m;
+            return new LongsSpliterator(rng.splitForStream(depth++), i, m, origin, bound, depth);
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer consumer) {
+            if (index < fence) {
+                consumer.accept(next());
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer consumer) {
+            for (long i = index; i < fence; i++) {
+                consumer.accept(next());
+            }
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Spliterator of ints from [origin, bound), or of unbounded ints if
+     * origin &ge; bound.
+     */
+    private static final class IntsSpliterator implements Spliterator.OfInt {
+
+        private final BitsStreamGenerator64 rng;
+        private long index;
+        private final long fence;
+        private final int origin;
+        private final int bound;
+        private int depth;
+
+        IntsSpliterator(BitsStreamGenerator64 rng, long index, long fence, int origin, int bound, int depth) {
+            this.rng = rng;
+            this.index = index;
+            this.fence = fence;
+            this.origin = origin;
+            this.bound = bound;
+            this.depth = depth;
+        }
+
+        private int next() {
+            if (origin >= bound) {
+                return rng.nextInt();
+            }
+            return rng.nextInt(origin, bound);
+        }
+
+        @Override
+        public IntsSpliterator trySplit() {
+            long i = index;
+            long m = (i + fence) >>> 1;
+            if (m <= i) {
+                return null;
+            }
+            index = m;
+            return new IntsSpliterator(rng.splitForStream(depth++), i, m, origin, bound, depth);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer consumer) {
+            if (index < fence) {
+                consumer.accept(next());
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer consumer) {
+            for (long i = index; i < fence; i++) {
+                consumer.accept(next());
+            }
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Spliterator of doubles from [origin, bound), or from [0, 1) if origin
+     * &ge; bound.
+     */
+    private static final class DoublesSpliterator implements Spliterator.OfDouble {
+
+        private final BitsStreamGenerator64 rng;
+        private long index;
+        private final long fence;
+        private final double origin;
+        private final double bound;
+        private int depth;
+
+        DoublesSpliterator(BitsStreamGenerator64 rng, long index, long fence, double origin, double bound, int depth) {
+            this.rng = rng;
+            this.index = index;
+            this.fence = fence;
+            this.origin = origin;
+            this.bound = bound;
+            this.depth = depth;
+        }
+
+        private double next() {
+            return origin < bound ? rng.nextDoubleUnchecked(origin, bound)
+                    : rng.nextDouble();
+        }
+
+        @Override
+        public DoublesSpliterator trySplit() {
+            long i = index;
+            long m = (i + fence) >>> 1;
+            if (m <= i) {
+                return null;
+            }
+            index = m;
+            return new DoublesSpliterator(rng.splitForStream(depth++), i, m, origin, bound, depth);
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer consumer) {
+            if (index < fence) {
+                consumer.accept(next());
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(DoubleConsumer consumer) {
+            for (long i = index; i < fence; i++) {
+                consumer.accept(next());
+            }
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Mixes the bits of a long, the MurmurHash3 finalizer with the constants
+     * of Stafford's variant 13 as used by java.util.SplittableRandom. Each
+     * input bit affects every output bit and zero maps to zero.
+     *
+     * @param z the long to mix
+     * @return the mixed long
+     */
+    protected static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d_1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb_133111ebL;
+        return z ^ (z >>> 31);
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+/**
+ * Checkpoints of the complete state of a fixed array of generators in a
+ * memory-mapped file, for long-running simulations that must resume with
+ * the same random sequences after a restart. The states are taken with
+ * {@link BitsStreamGenerator64#saveState(long[], int)}, so they include the
+ * position in the generator state and the values stored between calls.
+ *
+ * The simulation calls {@link #tick()} once per step, every cadence:th tick
+ * writes a checkpoint in place, without allocation. The file holds two
+ * copies of the states, a checkpoint overwrites the older copy, forces it to
+ * the storage device and only then marks it current, so a crash while
+ * writing leaves the previous checkpoint intact. After a restart
+ * {@link #restore()} restores the generators from the current copy and
+ * returns the tick count at which it was written.
+ *
+ * The file is limited to 2 GB, about 6 million XorShift1024Star generators.
+ * Not thread safe.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public final class CheckpointStore implements Closeable {
+
+    /* "JPMCKPT" + format version */
+    private static final long MAGIC = 0x4a504d434b505401L;
+    /* header words: magic, generator count, slot words, current copy, tick
+     * count of copy 0, tick count of copy 1 */
+    private static final int HEADER_WORDS = 6;
+    private static final int COUNT = 1;
+    private static final int SLOT = 2;
+    private static final int CURRENT = 3;
+    private static final int TICKS = 4;
+    /* current copy when no checkpoint has been written */
+    private static final long NONE = -1;
+    /* the generators */
+    private final BitsStreamGenerator64[] generators;
+    /* longs per generator, the state length and the state */
+    private final int slot_words;
+    /* ticks between checkpoints */
+    private final long cadence;
+    /* the file */
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final LongBuffer words;
+    /* reused state of one generator */
+    private final long[] scratch;
+    /* count of ticks */
+    private long ticks = 0;
+
+    /**
+     * Opens the checkpoint file for the generators, creating it if it does
+     * not exist. An existing file must have been created for the same count
+     * of generators of the same state lengths.
+     *
+     * @param file the checkpoint file
+     * @param generators the generators, in the same order on every run
+     * @param cadence count of ticks between checkpoints
+     * @throws IOException if the file can not be opened or is not a
+     * checkpoint file
+     * @throws NotStrictlyPositiveException if cadence is not positive
+     * @throws DimensionMismatchException if the file is for a different
+     * count or kind of generators
+     * @throws NumberIsTooLargeException if the file would exceed 2 GB
+     * @throws org.apache.commons.math3.exception.MathUnsupportedOperationException
+     * if a generator does not support state snapshots
+     */
+    public CheckpointStore(Path file, BitsStreamGenerator64[] generators, long cadence) throws IOException {
+        if (cadence < 1) {
+            throw new NotStrictlyPositiveException(cadence);
+        }
+        this.generators = generators.clone();
+        this.cadence = cadence;
+        int max_len = 0;
+        for (BitsStreamGenerator64 g : generators) {
+            max_len = Math.max(max_len, g.getStateLength());
+        }
+        slot_words = 1 + max_len;
+        scratch = new long[max_len];
+        final long total_words = HEADER_WORDS + 2L * generators.length * slot_words;
+        if (total_words * Long.BYTES > Integer.MAX_VALUE) {
+            throw new NumberIsTooLargeException(total_words * Long.BYTES, Integer.MAX_VALUE, true);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final long size = channel.size();
+            if (size != 0) {
+                checkHeader(size, total_words);
+            }
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, total_words * Long.BYTES);
+            words = map.asLongBuffer();
+            if (size == 0) {
+                words.put(0, MAGIC);
+                words.put(COUNT, generators.length);
+                words.put(SLOT, slot_words);
+                words.put(CURRENT, NONE);
+                map.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the header of an existing file before it is mapped, mapping a
+     * shorter file would extend it.
+     *
+     * @param size the file size in bytes
+     * @param total_words the expected file size in longs
+     */
+    private void checkHeader(long size, long total_words) throws IOException {
+        if (size < HEADER_WORDS * Long.BYTES) {
+            throw new IOException("not a checkpoint file");
+        }
+        final LongBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_WORDS * Long.BYTES).asLongBuffer();
+        if (header.get(0) != MAGIC) {
+            throw new IOException("not a checkpoint file");
+        }
+        if (header.get(COUNT) != generators.length) {
+            throw new DimensionMismatchException((int) header.get(COUNT), generators.length);
+        }
+        if (header.get(SLOT) != slot_words) {
+            throw new DimensionMismatchException((int) header.get(SLOT), slot_words);
+        }
+        if (size != total_words * Long.BYTES) {
+            throw new IOException("checkpoint file size does not match");
+        }
+    }
+
+    /**
+     * Counts a tick and writes a checkpoint if the count is a multiple of the
+     * cadence.
+     *
+     * @return true if a checkpoint was written
+     */
+    public boolean tick() {
+        if (++ticks % cadence == 0) {
+            checkpoint();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes a checkpoint of the generators now, with the current tick count.
+     */
+    public void checkpoint() {
+        final int copy = words.get(CURRENT) == 0 ? 1 : 0;
+        final int start = HEADER_WORDS + copy * generators.length * slot_words;
+        int pos = start;
+        for (BitsStreamGenerator64 g : generators) {
+            final int len = g.getStateLength();
+            g.saveState(scratch, 0);
+            words.put(pos, len);
+            words.put(pos + 1, scratch, 0, len);
+            pos += slot_words;
+        }
+        words.put(TICKS + copy, ticks);
+        map.force(start * Long.BYTES, (pos - start) * Long.BYTES);
+        map.force(TICKS * Long.BYTES, 2 * Long.BYTES);
+        words.put(CURRENT, copy);
+        map.force(CURRENT * Long.BYTES, Long.BYTES);
+    }
+
+    /**
+     * Restores the generators and the tick count from the current checkpoint.
+     * All slots of the checkpoint are checked before any generator is
+     * restored, if an exception is thrown nothing is changed.
+     *
+     * @return the tick count of the checkpoint, -1 if no checkpoint has been
+     * written, in which case nothing is changed
+     * @throws OutOfRangeException if the current copy in the header is not
+     * -1, 0 or 1, or a saved state is not valid
+     * @throws NotPositiveException if the saved tick count is negative
+     * @throws DimensionMismatchException if the state length of a generator
+     * differs from the one saved
+     */
+    public long restore() {
+        final long copy = words.get(CURRENT);
+        if (copy == NONE) {
+            return NONE;
+        }
+        if (copy != 0 && copy != 1) {
+            throw new OutOfRangeException(copy, NONE, 1);
+        }
+        final long saved_ticks = words.get(TICKS + (int) copy);
+        if (saved_ticks < 0) {
+            throw new NotPositiveException(saved_ticks);
+        }
+        final int start = HEADER_WORDS + (int) copy * generators.length * slot_words;
+        int pos = start;
+        for (BitsStreamGenerator64 g : generators) {
+            final int len = g.getStateLength();
+            if (words.get(pos) != len) {
+                throw new DimensionMismatchException((int) words.get(pos), len);
+            }
+            words.get(pos + 1, scratch, 0, len);
+            g.checkState(scratch, 0);
+            pos += slot_words;
+        }
+        pos = start;
+        for (BitsStreamGenerator64 g : generators) {
+            words.get(pos + 1, scratch, 0, g.getStateLength());
+            g.restoreState(scratch, 0);
+            pos += slot_words;
+        }
+        ticks = saved_ticks;
+        return ticks;
+    }
+
+    /**
+     * Returns the count of ticks, including those before the restored
+     * checkpoint.
+     *
+     * @return the tick count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Closes the file, the mapping stays valid until garbage collected. The
+     * last checkpoint is already on the storage device.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
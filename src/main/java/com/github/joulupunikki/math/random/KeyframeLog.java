@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+
+/**
+ * Append-only log of generator state keyframes written by
+ * {@link RecordingGenerator}, keyframe k is the state of the recorded
+ * generator before draw k * interval. Read by {@link ReplayGenerator} to
+ * seek to any draw. The log can be written to and read from a stream to
+ * replay a recorded run in another process.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public final class KeyframeLog {
+
+    /* "JPMK" */
+    private static final int MAGIC = 0x4a504d4b;
+    /* the most longs in the log, the keyframes must fit in one array */
+    private static final int MAX_LONGS = Integer.MAX_VALUE - 8;
+    /* the most longs allocated ahead of the data when reading */
+    private static final int READ_CHUNK = 1 << 16;
+    /* draws between keyframes */
+    private final int interval;
+    /* longs per keyframe, see BitsStreamGenerator64.getStateLength() */
+    private final int state_length;
+    /* the keyframes, keyframe k at index k * state_length */
+    private long[] frames;
+    /* count of keyframes */
+    private int count = 0;
+
+    /**
+     * Empty log.
+     *
+     * @param interval draws between keyframes
+     * @param state_length longs per keyframe
+     * @throws NotStrictlyPositiveException if interval or state_length is
+     * not positive
+     * @throws NumberIsTooLargeException if state_length is larger than
+     * 2147483639
+     */
+    KeyframeLog(int interval, int state_length) {
+        if (interval < 1) {
+            throw new NotStrictlyPositiveException(interval);
+        }
+        if (state_length < 1) {
+            throw new NotStrictlyPositiveException(state_length);
+        }
+        if (state_length > MAX_LONGS) {
+            throw new NumberIsTooLargeException(state_length, MAX_LONGS, true);
+        }
+        this.interval = interval;
+        this.state_length = state_length;
+        frames = new long[(int) Math.min(16L * state_length, MAX_LONGS)];
+    }
+
+    /**
+     * Log of count keyframes read into frames.
+     */
+    private KeyframeLog(int interval, int state_length, long[] frames, int count) {
+        this.interval = interval;
+        this.state_length = state_length;
+        this.frames = frames;
+        this.count = count;
+    }
+
+    /**
+     * Appends the state of rng as the next keyframe.
+     *
+     * @param rng the generator
+     * @throws NumberIsTooLargeException if the keyframes would not fit in
+     * one array
+     */
+    void append(BitsStreamGenerator64 rng) {
+        final long needed = (count + 1L) * state_length;
+        if (needed > frames.length) {
+            if (needed > MAX_LONGS) {
+                throw new NumberIsTooLargeException(count + 1, MAX_LONGS / state_length, true);
+            }
+            frames = Arrays.copyOf(frames, (int) Math.min(Math.max(2L * frames.length, needed), MAX_LONGS));
+        }
+        rng.saveState(frames, count * state_length);
+        count++;
+    }
+
+    /**
+     * Restores rng to keyframe k.
+     *
+     * @param k the keyframe
+     * @param rng the generator
+     */
+    void restore(int k, BitsStreamGenerator64 rng) {
+        rng.restoreState(frames, k * state_length);
+    }
+
+    /**
+     * Returns the count of draws between keyframes.
+     *
+     * @return the interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the count of longs per keyframe.
+     *
+     * @return the state length
+     */
+    public int getStateLength() {
+        return state_length;
+    }
+
+    /**
+     * Returns the count of keyframes.
+     *
+     * @return the count of keyframes
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the log to out.
+     *
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(interval);
+        out.writeInt(state_length);
+        out.writeInt(count);
+        for (int i = 0, end = count * state_length; i < end; i++) {
+            out.writeLong(frames[i]);
+        }
+    }
+
+    /**
+     * Reads a log written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input
+     * @return the log
+     * @throws IOException if reading fails or the input is not a log, eg.
+     * if it is truncated or its header is corrupt
+     */
+    public static KeyframeLog readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a keyframe log");
+        }
+        final int interval = in.readInt();
+        final int state_length = in.readInt();
+        final int count = in.readInt();
+        final long longs = (long) count * state_length;
+        if (interval < 1 || state_length < 1 || state_length > MAX_LONGS
+                || count < 0 || longs > MAX_LONGS) {
+            throw new IOException("not a keyframe log");
+        }
+        // grown as the data arrives, a corrupt count can not allocate more
+        // than a chunk ahead of a truncated input
+        long[] frames = new long[(int) Math.max(Math.min(longs, READ_CHUNK), state_length)];
+        for (int i = 0; i < longs; i++) {
+            if (i == frames.length) {
+                frames = Arrays.copyOf(frames, (int) Math.min(2L * frames.length, longs));
+            }
+            frames[i] = in.readLong();
+        }
+        return new KeyframeLog(interval, state_length, frames, count);
+    }
+
+    /**
+     * Checks that the keyframes fit the generator.
+     *
+     * @param rng the generator
+     * @throws DimensionMismatchException if the state length of rng differs
+     */
+    void check(BitsStreamGenerator64 rng) {
+        if (rng.getStateLength() != state_length) {
+            throw new DimensionMismatchException(rng.getStateLength(), state_length);
+        }
+    }
+}
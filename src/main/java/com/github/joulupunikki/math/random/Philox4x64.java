@@ -0,0 +1,455 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+
+/**
+ * Philox4x64-10 counter-based generator of Salmon et al., "Parallel random
+ * numbers: as easy as 1, 2, 3" (Random123). A block of four longs is a
+ * keyed bijection of a 256-bit counter, so any block can be computed
+ * independently of the others in O(1), without a stored state to advance.
+ * The sequence of this generator is the blocks of counters 0, 1, 2, ... of
+ * its 128-bit key, each block handed out from its word 0 to word 3.
+ * {@link #setCounter(BigInteger)} moves to any block of the sequence.
+ *
+ * The seed is hashed into the key, the counter starts from 0. The static
+ * methods {@link #block(long[], long[], long[])},
+ * {@link #fill(long, long, long, long[], int, int)} and
+ * {@link #random(long, long, long)} compute blocks of a given key and
+ * counter without a generator, eg. per entity randomness keyed by an entity
+ * id.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class Philox4x64 extends BitsStreamGenerator64 {
+
+    /* date of mod in hex, append version (eg. "a2") if necessary */
+    private static final long serialVersionUID = 0x20150801L;
+    /* state bit count of this generator, the key */
+    private static final int S_BITS = 128;
+    /* count of rounds */
+    private static final int ROUNDS = 10;
+    /* round multipliers */
+    private static final long M0 = 0xd2e7470e_e14c6c93L;
+    private static final long M1 = 0xca5a8263_95121157L;
+    /* key increments per round, golden ratio and sqrt(3) - 1 */
+    private static final long W0 = 0x9e3779b9_7f4a7c15L;
+    private static final long W1 = 0xbb67ae85_84caa73bL;
+    /* words per block */
+    private static final int BLOCK = 4;
+    /* the key */
+    private long k0;
+    private long k1;
+    /* counter of the next block to compute, c0 least significant */
+    private long c0;
+    private long c1;
+    private long c2;
+    private long c3;
+    /* the last computed block */
+    private final long[] out = new long[BLOCK];
+    /* index of the next unused word in out, BLOCK if none */
+    private int pos = BLOCK;
+
+    private void init() {
+        STATE_BITS = S_BITS;
+        STATE_WORDS = STATE_BITS / WORD_BITS;
+    }
+
+    /**
+     * Generator seeded from time and a unique counter, without secure hashing
+     * so that many generators can be created quickly from many threads.
+     */
+    public Philox4x64() {
+        init();
+        timeSeed();
+    }
+
+    public Philox4x64(int seed) {
+        init();
+        setSeed(seed);
+    }
+
+    public Philox4x64(int[] seed) {
+        init();
+        setSeed(seed);
+    }
+
+    public Philox4x64(long seed) {
+        init();
+        setSeed(seed);
+    }
+
+    /**
+     * Generator seeded with the given seed scheme, which is also used by later
+     * calls to setSeed().
+     *
+     * @param seed the seed
+     * @param scheme the seed scheme
+     */
+    public Philox4x64(long seed, SeedScheme scheme) {
+        init();
+        setSeedScheme(scheme);
+        setSeed(seed);
+    }
+
+    /**
+     * Generator with the given key and counter 0, no seeding is done.
+     *
+     * @param k0 the first key word
+     * @param k1 the second key word
+     */
+    public Philox4x64(long k0, long k1) {
+        init();
+        setKey(k0, k1);
+    }
+
+    /**
+     * Sets the key and the counter to 0, the next long is word 0 of block 0
+     * of the key. Stored values in super are reset.
+     *
+     * @param k0 the first key word
+     * @param k1 the second key word
+     */
+    public void setKey(long k0, long k1) {
+        this.k0 = k0;
+        this.k1 = k1;
+        c0 = c1 = c2 = c3 = 0;
+        pos = BLOCK;
+        clear(); // reset stored values in super
+    }
+
+    /**
+     * Moves to the block of the counter, the next long is word 0 of that
+     * block, in O(1). Stored values in super are reset.
+     *
+     * @param counter the counter, from 0 to 2^256 - 1
+     * @throws NotPositiveException if counter is negative
+     * @throws NumberIsTooLargeException if counter is 2^256 or larger
+     */
+    public void setCounter(BigInteger counter) {
+        if (counter.signum() < 0) {
+            throw new NotPositiveException(counter);
+        }
+        if (counter.bitLength() > BLOCK * WORD_BITS) {
+            throw new NumberIsTooLargeException(counter, BigInteger.ONE.shiftLeft(BLOCK * WORD_BITS).subtract(BigInteger.ONE), true);
+        }
+        c0 = counter.longValue();
+        c1 = counter.shiftRight(WORD_BITS).longValue();
+        c2 = counter.shiftRight(2 * WORD_BITS).longValue();
+        c3 = counter.shiftRight(3 * WORD_BITS).longValue();
+        pos = BLOCK;
+        clear(); // reset stored values in super
+    }
+
+    /**
+     * Returns the position of the next long in the sequence, 4 * the counter
+     * of its block + its word.
+     *
+     * @return the position
+     */
+    public BigInteger getPosition() {
+        BigInteger next = new BigInteger(1, ByteBuffer.allocate(BLOCK * Long.BYTES)
+                .putLong(c3).putLong(c2).putLong(c1).putLong(c0).array());
+        // the counter was incremented when the buffered block was computed
+        return next.shiftLeft(2).subtract(BigInteger.valueOf(BLOCK - pos))
+                .mod(BigInteger.ONE.shiftLeft(BLOCK * WORD_BITS + 2));
+    }
+
+    /**
+     * Computes the block of the counter into out, increments the counter.
+     */
+    private void refill() {
+        block(c0, c1, c2, c3, k0, k1, out, 0, BLOCK);
+        if (++c0 == 0 && ++c1 == 0 && ++c2 == 0) {
+            ++c3;
+        }
+        pos = 0;
+    }
+
+    @Override
+    protected long nextL(int bits) {
+        if (pos == BLOCK) {
+            refill();
+        }
+        return out[pos++] >>> (WORD_BITS - bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Whole blocks are computed directly into dst.
+     */
+    @Override
+    public void nextLongs(long[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        final int end = off + len;
+        while (pos < BLOCK && off < end) {
+            dst[off++] = out[pos++];
+        }
+        for (; end - off >= BLOCK; off += BLOCK) {
+            block(c0, c1, c2, c3, k0, k1, dst, off, BLOCK);
+            if (++c0 == 0 && ++c1 == 0 && ++c2 == 0) {
+                ++c3;
+            }
+        }
+        if (off < end) {
+            refill();
+            while (off < end) {
+                dst[off++] = out[pos++];
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The key words of the child are the next two longs of this generator
+     * passed through {@link #mix64(long)}, its counter starts from 0.
+     */
+    @Override
+    public Philox4x64 split() {
+        long a = mix64(nextL(WORD_BITS));
+        long b = mix64(nextL(WORD_BITS));
+        return new Philox4x64(a, b);
+    }
+
+    /**
+     * Sets the key to the first two longs of state, a shorter array sets only
+     * the first key word, and the counter to 0. In general the setSeed()
+     * methods should be used to seed the generator.
+     *
+     * @param state the key words
+     */
+    @Override
+    public void setState(Object state) {
+        long[] key = (long[]) state;
+        setKey(key.length > 0 ? key[0] : k0, key.length > 1 ? key[1] : k1);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 11, the key, the counter, the last block and the index in it
+     */
+    @Override
+    protected int getGeneratorStateLength() {
+        return 2 + 2 * BLOCK + 1;
+    }
+
+    @Override
+    protected void saveGeneratorState(long[] dst, int off) {
+        dst[off] = k0;
+        dst[off + 1] = k1;
+        dst[off + 2] = c0;
+        dst[off + 3] = c1;
+        dst[off + 4] = c2;
+        dst[off + 5] = c3;
+        System.arraycopy(out, 0, dst, off + 6, BLOCK);
+        dst[off + 10] = pos;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws OutOfRangeException if the index is not from 0 to 4
+     */
+    @Override
+    protected void checkGeneratorState(long[] src, int off) {
+        final long q = src[off + 10];
+        if (q < 0 || q > BLOCK) {
+            throw new OutOfRangeException(q, 0, BLOCK);
+        }
+    }
+
+    @Override
+    protected void restoreGeneratorState(long[] src, int off) {
+        k0 = src[off];
+        k1 = src[off + 1];
+        c0 = src[off + 2];
+        c1 = src[off + 3];
+        c2 = src[off + 4];
+        c3 = src[off + 5];
+        System.arraycopy(src, off + 6, out, 0, BLOCK);
+        pos = (int) src[off + 10];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The index as a byte followed by the key and the counter, and the unused
+     * words of the last block, at most 81 bytes.
+     */
+    @Override
+    protected void writeGeneratorState(ByteBuffer dst) {
+        dst.put((byte) pos);
+        dst.putLong(k0).putLong(k1);
+        dst.putLong(c0).putLong(c1).putLong(c2).putLong(c3);
+        for (int i = pos; i < BLOCK; i++) {
+            dst.putLong(out[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The used words of the last block are not written, they are read as 0.
+     *
+     * @throws OutOfRangeException if the index is not from 0 to 4
+     */
+    @Override
+    protected void readGeneratorState(ByteBuffer src, long[] dst, int off) {
+        final int q = src.get();
+        if (q < 0 || q > BLOCK) {
+            throw new OutOfRangeException(q, 0, BLOCK);
+        }
+        for (int i = 0; i < 6; i++) {
+            dst[off + i] = src.getLong();
+        }
+        for (int i = q; i < BLOCK; i++) {
+            dst[off + 6 + i] = src.getLong();
+        }
+        dst[off + 10] = q;
+    }
+
+    /**
+     * Philox4x64-10 of the counter and key, the Random123 function
+     * <code>philox4x64(ctr, key)</code>.
+     *
+     * @param counter the 4 counter words, counter[0] least significant
+     * @param key the 2 key words
+     * @param out the 4 words of the block
+     */
+    public static void block(long[] counter, long[] key, long[] out) {
+        block(counter[0], counter[1], counter[2], counter[3], key[0], key[1], out, 0, BLOCK);
+    }
+
+    /**
+     * Returns the long at position index of the sequence of the key, word
+     * index % 4 of the block of counter index / 4, in O(1). Equivalent to
+     * the index:th long of a generator created with
+     * {@link #Philox4x64(long, long)}.
+     *
+     * @param k0 the first key word
+     * @param k1 the second key word
+     * @param index the position, as an unsigned long
+     * @return the long
+     */
+    public static long random(long k0, long k1, long index) {
+        // the rounds of block() in locals, without allocation
+        long c0 = index >>> 2;
+        long c1 = 0;
+        long c2 = 0;
+        long c3 = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            if (r > 0) {
+                k0 += W0;
+                k1 += W1;
+            }
+            final long hi0 = mulhi(M0, c0);
+            final long lo0 = M0 * c0;
+            final long hi1 = mulhi(M1, c2);
+            final long lo1 = M1 * c2;
+            c0 = hi1 ^ c1 ^ k0;
+            c1 = lo1;
+            c2 = hi0 ^ c3 ^ k1;
+            c3 = lo0;
+        }
+        switch ((int) index & 3) {
+            case 0:
+                return c0;
+            case 1:
+                return c1;
+            case 2:
+                return c2;
+            default:
+                return c3;
+        }
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with the blocks of the key starting from the block of
+     * counter. Equivalent to {@link #setCounter(BigInteger)} and
+     * {@link #nextLongs(long[], int, int)} of a generator created with
+     * {@link #Philox4x64(long, long)}.
+     *
+     * @param k0 the first key word
+     * @param k1 the second key word
+     * @param counter the counter of the first block, as an unsigned long
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws OutOfRangeException if off or len is out of array bounds
+     */
+    public static void fill(long k0, long k1, long counter, long[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        final int end = off + len;
+        long c1 = 0;
+        for (; end - off >= BLOCK; off += BLOCK) {
+            block(counter, c1, 0, 0, k0, k1, dst, off, BLOCK);
+            if (++counter == 0) {
+                c1++;
+            }
+        }
+        if (off < end) {
+            block(counter, c1, 0, 0, k0, k1, dst, off, end - off);
+        }
+    }
+
+    /**
+     * Philox4x64-10 of the counter and key, the first len, 1 to 4, words of
+     * the block written starting at dst[off].
+     */
+    private static void block(long c0, long c1, long c2, long c3, long k0, long k1, long[] dst, int off, int len) {
+        for (int r = 0; r < ROUNDS; r++) {
+            if (r > 0) {
+                k0 += W0;
+                k1 += W1;
+            }
+            final long hi0 = mulhi(M0, c0);
+            final long lo0 = M0 * c0;
+            final long hi1 = mulhi(M1, c2);
+            final long lo1 = M1 * c2;
+            c0 = hi1 ^ c1 ^ k0;
+            c1 = lo1;
+            c2 = hi0 ^ c3 ^ k1;
+            c3 = lo0;
+        }
+        dst[off] = c0;
+        if (len > 1) {
+            dst[off + 1] = c1;
+        }
+        if (len > 2) {
+            dst[off + 2] = c2;
+        }
+        if (len > 3) {
+            dst[off + 3] = c3;
+        }
+    }
+
+    /**
+     * Returns the high 64 bits of the unsigned 128-bit product of a and b,
+     * from the signed product.
+     */
+    private static long mulhi(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.exception.MathUnsupportedOperationException;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+/**
+ * Decorator of a BitsStreamGenerator64 that counts draws, calls of
+ * {@link #nextL(int)} on the decorated generator, and appends its state to a
+ * {@link KeyframeLog} every interval draws. A {@link ReplayGenerator} can
+ * then replay the sequence from any draw of the recording without rerunning
+ * the draws before it. The values drawn are those of the decorated
+ * generator's nextL(), the decorator stores its own int halves and
+ * gaussians, so the sequence of eg. nextInt() is that of the base class.
+ *
+ * The hot path adds one decrement and one branch to nextL(), state is saved
+ * only on keyframes, in keyframe() behind the branch. This does not yet meet
+ * the goal of a few percent overhead per draw: once a keyframe has been
+ * taken C2 compiles the branch with a call to keyframe() in it, and any call
+ * in a drawing loop makes the decorated generator's fields be reloaded on
+ * every draw. RecordingBenchmark measures 19.7 us plain and 31.2 us recorded
+ * per 4096 nextDouble() draws of XorShift1024Star, and 20.5 us and 31.5 us
+ * through nextL(). Use the bulk methods where the overhead matters.
+ * nextLong(), nextDouble() and nextInt() are final and
+ * call the decorated generator's nextLong() and nextDouble() directly, each
+ * counts as one draw, so the decorated generator's nextDouble() must use one
+ * long like the base class does. The bulk methods
+ * {@link #nextLongs(long[], int, int)} and
+ * {@link #nextDoubles(double[], int, int)} hand whole chunks between
+ * keyframes to the decorated generator and add no per draw overhead. The
+ * decorated generator must support
+ * {@link BitsStreamGenerator64#saveState(long[], int)} and must not be used
+ * directly while decorated. The decorator can not be reseeded or split,
+ * that would break the draw count. Not thread safe.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class RecordingGenerator extends BitsStreamGenerator64 {
+
+    private static final long serialVersionUID = 0x20150704L;
+    /* the decorated generator */
+    private final BitsStreamGenerator64 rng;
+    /* the keyframes */
+    private final KeyframeLog log;
+    /* draws until the next keyframe */
+    private int countdown;
+
+    /**
+     * Records the draws of rng from its current state on, keyframe 0 is the
+     * current state.
+     *
+     * @param rng the generator to decorate
+     * @param interval draws between keyframes
+     * @throws NotStrictlyPositiveException if interval is not positive
+     * @throws MathUnsupportedOperationException if rng does not support state
+     * snapshots
+     */
+    public RecordingGenerator(BitsStreamGenerator64 rng, int interval) {
+        this.rng = rng;
+        this.log = new KeyframeLog(interval, rng.getStateLength());
+        log.append(rng);
+        countdown = interval;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Draws from the decorated generator and appends a keyframe after every
+     * interval draws.
+     */
+    @Override
+    protected long nextL(int bits) {
+        final long r = rng.nextL(bits);
+        if (--countdown == 0) {
+            keyframe();
+        }
+        return r;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and forwarding to the decorated generator's own nextLong(), so
+     * that a specialized implementation there is used and the call does not
+     * go through the shared {@link #nextL(int)} call site of the superclass.
+     */
+    @Override
+    public final long nextLong() {
+        final long r = rng.nextLong();
+        if (--countdown == 0) {
+            keyframe();
+        }
+        return r;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and forwarding to the decorated generator's own nextDouble(), see
+     * {@link #nextLong()}.
+     */
+    @Override
+    public final double nextDouble() {
+        final double r = rng.nextDouble();
+        if (--countdown == 0) {
+            keyframe();
+        }
+        return r;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and drawing a new long through {@link #nextLong()} when one is
+     * needed, the sequence is that of the superclass.
+     */
+    @Override
+    public final int nextInt() {
+        return hasStoredInt() ? super.nextInt() : pairInts(nextLong());
+    }
+
+    /**
+     * Appends a keyframe, kept out of {@link #nextL(int)} to keep the hot
+     * path small.
+     */
+    private void keyframe() {
+        log.append(rng);
+        countdown = log.getInterval();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Passed to the decorated generator in chunks ending at the keyframes,
+     * without per draw overhead.
+     */
+    @Override
+    public void nextLongs(long[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        while (len > 0) {
+            final int n = Math.min(len, countdown);
+            rng.nextLongs(dst, off, n);
+            off += n;
+            len -= n;
+            countdown -= n;
+            if (countdown == 0) {
+                keyframe();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Passed to the decorated generator in chunks ending at the keyframes,
+     * without per draw overhead.
+     */
+    @Override
+    public void nextDoubles(double[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        while (len > 0) {
+            final int n = Math.min(len, countdown);
+            rng.nextDoubles(dst, off, n);
+            off += n;
+            len -= n;
+            countdown -= n;
+            if (countdown == 0) {
+                keyframe();
+            }
+        }
+    }
+
+    /**
+     * Returns the count of draws recorded.
+     *
+     * @return the count of draws
+     */
+    public long getDraws() {
+        return (log.size() - 1L) * log.getInterval() + log.getInterval() - countdown;
+    }
+
+    /**
+     * Returns the keyframe log, which grows as the recording goes on.
+     *
+     * @return the log
+     */
+    public KeyframeLog getLog() {
+        return log;
+    }
+
+    /**
+     * Not supported, reseeding would break the draw count.
+     *
+     * @param seed ignored
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public void setSeed(int[] seed) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Not supported, reseeding would break the draw count.
+     *
+     * @param seed ignored
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public void setSeed(long[] seed) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Not supported, reseeding would break the draw count.
+     *
+     * @param state ignored
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public void setState(Object state) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Not supported, the draws of the decorated generator's split() would
+     * not be counted.
+     *
+     * @return never
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public BitsStreamGenerator64 split() {
+        throw new MathUnsupportedOperationException();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.MathUnsupportedOperationException;
+import org.apache.commons.math3.exception.NotPositiveException;
+
+/**
+ * Replays the draws recorded by a {@link RecordingGenerator} from any draw
+ * index. {@link #seek(long)} restores the nearest keyframe at or before the
+ * draw and fast-forwards through at most interval - 1 draws, after which
+ * {@link #nextL(int)} returns the recorded draws. The values stored between
+ * calls of eg. nextInt() are cleared by a seek, so the replayed sequence of
+ * such methods is that of the recording if the recorded run was at the same
+ * point in calling them, eg. at the start of a simulation step. Not thread
+ * safe.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class ReplayGenerator extends BitsStreamGenerator64 {
+
+    private static final long serialVersionUID = 0x20150704L;
+    /* the generator whose state is set from the keyframes */
+    private final BitsStreamGenerator64 rng;
+    /* the keyframes */
+    private final KeyframeLog log;
+    /* index of the next draw */
+    private long draws;
+
+    /**
+     * Replay generator positioned at draw 0.
+     *
+     * @param rng generator of the same kind as the recorded one, its state is
+     * overwritten
+     * @param log the keyframes
+     * @throws DimensionMismatchException if the state length of rng differs
+     * from the one recorded
+     */
+    public ReplayGenerator(BitsStreamGenerator64 rng, KeyframeLog log) {
+        log.check(rng);
+        this.rng = rng;
+        this.log = log;
+        seek(0);
+    }
+
+    /**
+     * Positions the generator so that the next draw is the draw with the
+     * given index, counted from 0. Draws past the last keyframe are reached
+     * by fast-forwarding from it.
+     *
+     * @param draw the draw index
+     * @throws NotPositiveException if draw is negative
+     */
+    public void seek(long draw) {
+        if (draw < 0) {
+            throw new NotPositiveException(draw);
+        }
+        final int interval = log.getInterval();
+        final int k = (int) Math.min(draw / interval, log.size() - 1);
+        log.restore(k, rng);
+        for (long i = (long) k * interval; i < draw; i++) {
+            rng.nextL(WORD_BITS);
+        }
+        draws = draw;
+        clear();
+    }
+
+    /**
+     * Returns the index of the next draw.
+     *
+     * @return the draw index
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    @Override
+    protected long nextL(int bits) {
+        draws++;
+        return rng.nextL(bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Forwarded to the decorated generator's own nextLong() as in
+     * {@link RecordingGenerator#nextLong()}.
+     */
+    @Override
+    public final long nextLong() {
+        draws++;
+        return rng.nextLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Forwarded to the decorated generator's own nextDouble() as in
+     * {@link RecordingGenerator#nextDouble()}.
+     */
+    @Override
+    public final double nextDouble() {
+        draws++;
+        return rng.nextDouble();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Draws a new long through {@link #nextLong()} when one is needed, as in
+     * {@link RecordingGenerator#nextInt()}.
+     */
+    @Override
+    public final int nextInt() {
+        return hasStoredInt() ? super.nextInt() : pairInts(nextLong());
+    }
+
+    /**
+     * Not supported, use {@link #seek(long)}.
+     *
+     * @param seed ignored
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public void setSeed(int[] seed) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Not supported, use {@link #seek(long)}.
+     *
+     * @param seed ignored
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public void setSeed(long[] seed) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Not supported, use {@link #seek(long)}.
+     *
+     * @param state ignored
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public void setState(Object state) {
+        throw new MathUnsupportedOperationException();
+    }
+
+    /**
+     * Not supported, the replay follows the recorded draws only.
+     *
+     * @return never
+     * @throws MathUnsupportedOperationException always
+     */
+    @Override
+    public BitsStreamGenerator64 split() {
+        throw new MathUnsupportedOperationException();
+    }
+}
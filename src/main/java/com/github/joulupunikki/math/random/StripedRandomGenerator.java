@@ -0,0 +1,245 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Thread safe RandomGenerator for places which need a single shared generator
+ * reference, a scalable replacement for SynchronizedRandomGenerator. Calls are
+ * spread over an array of XorShift1024Star stripes, a thread starts from the
+ * stripe picked by the hash of its id and takes ownership of a stripe with a
+ * compare-and-set, moving on to the next stripe if the stripe is owned by
+ * another thread. The stripes are started 2^512 steps apart by
+ * {@link XorShift1024Star#jump()} so their sequences do not overlap.
+ *
+ * Within one thread the sequence is reproducible as long as no other thread
+ * uses the generator, with several threads the order in which the stripes
+ * are used is not.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class StripedRandomGenerator implements RandomGenerator {
+
+    /* ints between ownership flags, keeps each flag on its own cache line */
+    private static final int PAD = 16;
+    /* the stripes */
+    private final XorShift1024Star[] stripes;
+    /* ownership flags, 1 if owned, at indexes stripe * PAD */
+    private final AtomicIntegerArray owned;
+    /* stripe count - 1, stripe count is a power of two */
+    private final int mask;
+
+    /**
+     * Striped generator seeded from time, with two stripes per available
+     * processor rounded up to a power of two.
+     */
+    public StripedRandomGenerator() {
+        this(2 * Runtime.getRuntime().availableProcessors(), System.nanoTime() ^ BitsStreamGenerator64.mix64(BitsStreamGenerator64.uniqueSeed()));
+    }
+
+    /**
+     * Striped generator with at least stripe_count stripes, rounded up to a
+     * power of two.
+     *
+     * @param stripe_count the minimum count of stripes
+     * @param seed the seed
+     * @throws NotStrictlyPositiveException if stripe_count is not positive
+     */
+    public StripedRandomGenerator(int stripe_count, long seed) {
+        if (stripe_count < 1) {
+            throw new NotStrictlyPositiveException(stripe_count);
+        }
+        int count = Integer.highestOneBit(stripe_count);
+        if (count < stripe_count) {
+            count <<= 1;
+        }
+        mask = count - 1;
+        stripes = new XorShift1024Star[count];
+        owned = new AtomicIntegerArray(count * PAD);
+        stripes[0] = new XorShift1024Star(seed);
+        for (int i = 1; i < count; i++) {
+            stripes[i] = stripes[i - 1].jumped();
+        }
+    }
+
+    /**
+     * Returns the count of stripes.
+     *
+     * @return the count of stripes
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Takes ownership of a stripe, starting from the stripe of the current
+     * thread and probing the following stripes until a free one is found.
+     *
+     * @return index of the owned stripe
+     */
+    private int acquire() {
+        int i = (int) BitsStreamGenerator64.mix64(Thread.currentThread().getId()) & mask;
+        for (int tries = 1;; tries++) {
+            if (owned.get(i * PAD) == 0 && owned.compareAndSet(i * PAD, 0, 1)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+            if ((tries & mask) == 0) {
+                Thread.yield(); // all stripes busy
+            }
+        }
+    }
+
+    /**
+     * Releases the ownership of a stripe.
+     *
+     * @param i index of the owned stripe
+     */
+    private void release(int i) {
+        owned.set(i * PAD, 0);
+    }
+
+    /**
+     * Reseeds all stripes, waiting for each stripe to be released. The first
+     * stripe is seeded with seed and the rest are jumped from it.
+     *
+     * @param seed the seed
+     */
+    private void reseed(long[] seed) {
+        for (int i = 0; i < stripes.length; i++) {
+            while (!owned.compareAndSet(i * PAD, 0, 1)) {
+                Thread.yield();
+            }
+        }
+        try {
+            stripes[0].setSeed(seed);
+            for (int i = 1; i < stripes.length; i++) {
+                stripes[i].setState(stripes[i - 1].getState());
+                stripes[i].jump();
+            }
+        } finally {
+            for (int i = 0; i < stripes.length; i++) {
+                release(i);
+            }
+        }
+    }
+
+    @Override
+    public void setSeed(int seed) {
+        setSeed((long) seed);
+    }
+
+    @Override
+    public void setSeed(int[] seed) {
+        if (seed == null) {
+            reseed(null);
+            return;
+        }
+        long[] t = new long[seed.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = seed[i];
+        }
+        reseed(t);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        reseed(new long[]{seed});
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        int i = acquire();
+        try {
+            stripes[i].nextBytes(bytes);
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public int nextInt() {
+        int i = acquire();
+        try {
+            return stripes[i].nextInt();
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public int nextInt(int n) {
+        int i = acquire();
+        try {
+            return stripes[i].nextInt(n);
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public long nextLong() {
+        int i = acquire();
+        try {
+            return stripes[i].nextLong();
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        int i = acquire();
+        try {
+            return stripes[i].nextBoolean();
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public float nextFloat() {
+        int i = acquire();
+        try {
+            return stripes[i].nextFloat();
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public double nextDouble() {
+        int i = acquire();
+        try {
+            return stripes[i].nextDouble();
+        } finally {
+            release(i);
+        }
+    }
+
+    @Override
+    public double nextGaussian() {
+        int i = acquire();
+        try {
+            return stripes[i].nextGaussian();
+        } finally {
+            release(i);
+        }
+    }
+}
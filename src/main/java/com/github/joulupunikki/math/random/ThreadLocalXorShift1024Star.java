@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+/**
+ * Per thread XorShift1024Star generators in the spirit of
+ * java.util.concurrent.ThreadLocalRandom. The generator of a thread is
+ * created on first use by {@link XorShift1024Star#split()} of a root generator
+ * which is seeded once from time, so no locking is needed to draw numbers and
+ * no SHA-512 seeding is done per thread. The generator returned by
+ * {@link #current()} must not be shared with other threads.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public final class ThreadLocalXorShift1024Star {
+
+    /* root generator, the thread generators are split from this */
+    private static final XorShift1024Star root = new XorShift1024Star();
+    /* generator of each thread */
+    private static final ThreadLocal<XorShift1024Star> local = new ThreadLocal<XorShift1024Star>() {
+        @Override
+        protected XorShift1024Star initialValue() {
+            synchronized (root) {
+                return root.split();
+            }
+        }
+    };
+
+    private ThreadLocalXorShift1024Star() {
+    }
+
+    /**
+     * Returns the generator of the current thread.
+     *
+     * @return the generator of the current thread
+     */
+    public static XorShift1024Star current() {
+        return local.get();
+    }
+}
@@ -15,7 +15,12 @@
  */
 package com.github.joulupunikki.math.random;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.random.RandomGenerator.LeapableGenerator;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.Well44497b;
 
@@ -26,9 +31,16 @@ import org.apache.commons.math3.random.Well44497b;
  * equidistributed longs; passes BigCrush of TestU01-suite (this implementation
  * has been tested with dieharder on Ubuntu 14.04); very fast.
  *
+ * Also a java.util.random LeapableGenerator, available through
+ * <code>RandomGenerator.of("XorShift1024Star")</code> and
+ * <code>RandomGeneratorFactory.of("XorShift1024Star")</code>. The factory
+ * properties (group, period, ...) of the JDK algorithms come from a JDK
+ * internal annotation, so this generator is not listed by
+ * <code>RandomGeneratorFactory.all()</code>.
+ *
  * @author joulupunikki joulupunikki@gmail.com
  */
-public class XorShift1024Star extends BitsStreamGenerator64 {
+public class XorShift1024Star extends BitsStreamGenerator64 implements LeapableGenerator {
 
     /* date of mod in hex, append version (eg. "a2") if necessary */
     private static final long serialVersionUID = 0x20150704L;
@@ -43,6 +55,32 @@ public class XorShift1024Star extends BitsStreamGenerator64 {
     private final long[] s;
     /* state index */
     private int p = 0;
+    /* multiplier of the output function */
+    static final long MULTIPLIER = 1181783497276652981L;
+    /* from Random */
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    /* jump polynomial x^(2^512) mod the characteristic polynomial, from Vigna */
+    private static final long[] JUMP = {
+        0x84242f96_eca9c41dL, 0xa3c65b87_76f96855L, 0x5b34a39f_070b5837L, 0x4489affc_e4f31a1eL, 0x2ffeeb0a_48316f40L, 0xdc2d9891_fe68c022L, 0x3659132b_b12fea70L, 0xaac17d8e_fa43cab8L,
+        0xc4cb8155_90989b13L, 0x5ee97528_3d71c93bL, 0x691548c8_6c1bd540L, 0x7910c41d_10a1e6a5L, 0x0b5fc645_63b3e2a8L, 0x047f7684_e9fc949dL, 0xb99181f2_d8f685caL, 0x284600e3_f30e38c3L
+    };
+    /* leap polynomial x^(2^768) mod the characteristic polynomial */
+    private static final long[] LEAP = {
+        0x1db6ba04_15e68f80L, 0x1f09c81a_e9ac14e7L, 0x1f6719a6_ee34e7f3L, 0xc120593b_38a9b5eaL, 0x3c412a1d_4223ae9aL, 0x8048b2a1_0ba2f726L, 0x88e5362f_50f7f650L, 0x891fa898_4bfc0276L,
+        0xa19d44b0_dd77a638L, 0xac0ab6e6_9c4da928L, 0x46719fb5_c5c827b7L, 0x05dd7bf1_53461782L, 0x56a51dd1_85004647L, 0x59b2257b_efdad3d3L, 0xd5d8a614_c24b08b3L, 0xd0159f54_7fca0a39L
+    };
+    /* characteristic polynomial of the state transition over GF(2) without
+     * the leading x^1024 term, LSB of the first word is the constant term */
+    private static final long[] CHAR_POLY = {
+        0x10000000_00000001L, 0x2200aa00_1400f000L, 0x0111e1c0_2bc18180L, 0x030d5352_01556130L, 0x4a32d044_029b08f7L, 0x34b32164_57d7b028L, 0xe860f083_d70158c6L, 0xdf6a7cad_ba32bca9L,
+        0xbabab341_e2554b59L, 0xcd40a7e2_537771eaL, 0x0040f0e4_6e848800L, 0xa1422cb7_814f5c68L, 0x53116c08_605c805fL, 0x04400240_03007b28L, 0x78787878_6d381540L, 0x00000000_00007879L
+    };
+    /* period of the generator, 2^1024 - 1 */
+    private static final BigInteger PERIOD = BigInteger.ONE.shiftLeft(S_BITS).subtract(BigInteger.ONE);
+    /* jump_table[k] = x^(2^k) mod CHAR_POLY, filled on demand */
+    private static final long[][] jump_table = new long[S_BITS][];
+    /* count of filled entries of jump_table */
+    private static int jump_table_size = 0;
 
     private void init() {
         STATE_BITS = S_BITS;
@@ -50,11 +88,13 @@ public class XorShift1024Star extends BitsStreamGenerator64 {
     }
 
     /**
+     * Generator seeded from time and a unique counter, without secure hashing
+     * so that many generators can be created quickly from many threads.
      */
     public XorShift1024Star() {
         init();
         this.s = new long[STATE_WORDS];
-        setSeed(System.nanoTime());
+        timeSeed();
     }
 
     public XorShift1024Star(int seed) {
@@ -75,6 +115,81 @@ public class XorShift1024Star extends BitsStreamGenerator64 {
         setSeed(seed);
     }
 
+    /**
+     * Generator seeded with the given seed scheme, which is also used by later
+     * calls to setSeed().
+     *
+     * @param seed the seed
+     * @param scheme the seed scheme
+     */
+    public XorShift1024Star(long seed, SeedScheme scheme) {
+        init();
+        this.s = new long[STATE_WORDS];
+        setSeedScheme(scheme);
+        setSeed(seed);
+    }
+
+    /**
+     * Copy of the original generator: the state, the state index, the values
+     * stored between calls and the modes. No seeding is done, the copy
+     * continues the sequence of the original exactly.
+     *
+     * @param original the generator to copy
+     */
+    public XorShift1024Star(XorShift1024Star original) {
+        this(original.s.clone(), original.p);
+        copyStoredValues(original);
+    }
+
+    /**
+     * Generator using the given array as its state, no seeding is done.
+     *
+     * @param state the state array, not copied
+     * @param p the state index
+     */
+    XorShift1024Star(long[] state, int p) {
+        init();
+        this.s = state;
+        this.p = p;
+        clear();
+    }
+
+    /**
+     * Creates count generators seeded from time, see {@link #create(int, long)}.
+     *
+     * @param count the count of generators
+     * @return the generators
+     * @throws NotPositiveException if count is negative
+     */
+    public static XorShift1024Star[] create(int count) {
+        return create(count, new XorShift1024Star());
+    }
+
+    /**
+     * Creates count generators from seed. Only a root generator is seeded,
+     * the generators are then created by {@link #split()} of the root, so
+     * creating a generator costs 16 state updates and no hashing.
+     *
+     * @param count the count of generators
+     * @param seed the seed of the root generator
+     * @return the generators
+     * @throws NotPositiveException if count is negative
+     */
+    public static XorShift1024Star[] create(int count, long seed) {
+        return create(count, new XorShift1024Star(seed));
+    }
+
+    private static XorShift1024Star[] create(int count, XorShift1024Star root) {
+        if (count < 0) {
+            throw new NotPositiveException(count);
+        }
+        XorShift1024Star[] r = new XorShift1024Star[count];
+        for (int i = 0; i < count; i++) {
+            r[i] = root.split();
+        }
+        return r;
+    }
+
     public double stateOnes() {
         double r = 0;
         for (long t : s) {
@@ -89,6 +204,74 @@ public class XorShift1024Star extends BitsStreamGenerator64 {
         return (Object) r;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return 17, the state words and the index
+     */
+    @Override
+    protected int getGeneratorStateLength() {
+        return STATE_WORDS + 1;
+    }
+
+    @Override
+    protected void saveGeneratorState(long[] dst, int off) {
+        System.arraycopy(s, 0, dst, off, STATE_WORDS);
+        dst[off + STATE_WORDS] = p;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws OutOfRangeException if the index is not from 0 to 15
+     */
+    @Override
+    protected void checkGeneratorState(long[] src, int off) {
+        final long q = src[off + STATE_WORDS];
+        if (q < 0 || q > 15) {
+            throw new OutOfRangeException(q, 0, 15);
+        }
+    }
+
+    @Override
+    protected void restoreGeneratorState(long[] src, int off) {
+        System.arraycopy(src, off, s, 0, STATE_WORDS);
+        p = (int) src[off + STATE_WORDS];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The index as a byte followed by the 16 state words, 129 bytes.
+     */
+    @Override
+    protected void writeGeneratorState(ByteBuffer dst) {
+        dst.put((byte) p);
+        for (long word : s) {
+            dst.putLong(word);
+        }
+    }
+
+    @Override
+    protected void readGeneratorState(ByteBuffer src, long[] dst, int off) {
+        dst[off + STATE_WORDS] = src.get();
+        for (int i = 0; i < STATE_WORDS; i++) {
+            dst[off + i] = src.getLong();
+        }
+    }
+
+    /**
+     * Returns state word j counted from the current index, word 0 being the
+     * one the next step reads first. For laying out the state of several
+     * generators side by side, see {@link XorShift1024StarLanes}.
+     *
+     * @param j the word, 0 to 15
+     * @return the state word
+     */
+    long stateWord(int j) {
+        return s[(p + j) & 15];
+    }
+
     public void printState() {
         for (int i = 0; i < s.length; i += 4) {
             System.out.println(s[i] + "L, " + s[i + 1] + "L, " + s[i + 2] + "L, " + s[i + 3] + "L,");
@@ -97,14 +280,14 @@ public class XorShift1024Star extends BitsStreamGenerator64 {
     }
 
     /**
-     * {@inheritDoc}
-     *
-     * The core function of XorShift1024Star.
+     * The core function of XorShift1024Star, advances the state by one step
+     * and returns the scrambled 64-bit output. Private so that every caller
+     * below compiles to one inlined state update, whatever other
+     * {@link BitsStreamGenerator64} subclasses are loaded.
      *
-     * @return
+     * @return the next 64 bits
      */
-    @Override
-    protected long nextL(int bits) {
+    private long step() {
         long s0 = s[p];
         p = (p + 1) & 15;
         long s1 = s[p];
@@ -112,7 +295,339 @@ public class XorShift1024Star extends BitsStreamGenerator64 {
         s1 ^= (s1 >>> 11);
         s0 ^= (s0 >>> 30);
         s[p] = s0 ^ s1;
-        return (s[p] * 1181783497276652981L) >>> (WORD_BITS - bits);
+        return s[p] * MULTIPLIER;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The core function of XorShift1024Star.
+     *
+     * @return
+     */
+    @Override
+    protected final long nextL(int bits) {
+        return step() >>> (WORD_BITS - bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and calling the state update directly, so that the call does not
+     * go through the shared, possibly megamorphic, {@link #nextL(int)} call
+     * site of the superclass.
+     */
+    @Override
+    public final long nextLong() {
+        return step();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and calling the state update directly, see {@link #nextLong()}.
+     */
+    @Override
+    public final double nextDouble() {
+        return (step() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and calling the state update directly when a new long is needed,
+     * see {@link #nextLong()}. The sequence is that of the superclass.
+     */
+    @Override
+    public final int nextInt() {
+        return hasStoredInt() ? super.nextInt() : pairInts(step());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The state update of {@link #nextL(int)} inlined into a loop over local
+     * copies of the state array and index.
+     */
+    @Override
+    public void nextLongs(long[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        final long[] st = s;
+        int q = p;
+        for (int i = off, end = off + len; i < end; i++) {
+            long s0 = st[q];
+            q = (q + 1) & 15;
+            long s1 = st[q];
+            s1 ^= (s1 << 31);
+            s1 ^= (s1 >>> 11);
+            s0 ^= (s0 >>> 30);
+            s0 ^= s1;
+            st[q] = s0;
+            dst[i] = s0 * MULTIPLIER;
+        }
+        p = q;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The state update of {@link #nextL(int)} inlined into a loop over local
+     * copies of the state array and index.
+     */
+    @Override
+    public void nextDoubles(double[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        final long[] st = s;
+        int q = p;
+        for (int i = off, end = off + len; i < end; i++) {
+            long s0 = st[q];
+            q = (q + 1) & 15;
+            long s1 = st[q];
+            s1 ^= (s1 << 31);
+            s1 ^= (s1 >>> 11);
+            s0 ^= (s0 >>> 30);
+            s0 ^= s1;
+            st[q] = s0;
+            dst[i] = ((s0 * MULTIPLIER) >>> 11) * DOUBLE_UNIT;
+        }
+        p = q;
+    }
+
+    /**
+     * Advances the state by 2^512 steps, as if {@link #nextLong()} had been
+     * called 2^512 times. Calling jump() repeatedly on one seeded generator
+     * yields starting points of 2^512 long non-overlapping subsequences, eg.
+     * for parallel workers. Stored values in super are reset.
+     */
+    @Override
+    public void jump() {
+        jump(JUMP);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 2^512
+     */
+    @Override
+    public double jumpDistance() {
+        return 0x1.0p512;
+    }
+
+    /**
+     * Advances the state by 2^768 steps, see {@link #jump()}. Each leap
+     * yields room for 2^256 jumps.
+     */
+    @Override
+    public void leap() {
+        jump(LEAP);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 2^768
+     */
+    @Override
+    public double leapDistance() {
+        return 0x1.0p768;
+    }
+
+    /**
+     * Returns a copy of this generator, see
+     * {@link #XorShift1024Star(XorShift1024Star)}.
+     *
+     * @return the copy
+     */
+    @Override
+    public XorShift1024Star copy() {
+        return new XorShift1024Star(this);
+    }
+
+    /**
+     * Sets this generator to a copy of other, as
+     * {@link #XorShift1024Star(XorShift1024Star)} but without allocation, eg.
+     * for rolling back to a saved generator.
+     *
+     * @param other the generator to copy
+     */
+    public void copyFrom(XorShift1024Star other) {
+        System.arraycopy(other.s, 0, s, 0, STATE_WORDS);
+        p = other.p;
+        copyStoredValues(other);
+    }
+
+    /**
+     * Returns a copy of this generator advanced by 2^512 steps, see
+     * {@link #jump()}. The state of this generator is not changed.
+     *
+     * @return the jumped copy
+     */
+    public XorShift1024Star jumped() {
+        XorShift1024Star r = new XorShift1024Star(this);
+        r.jump();
+        return r;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The 16 state words of the child are the next 16 longs of this generator
+     * passed through {@link #mix64(long)}, no SHA-512 hashing is done.
+     */
+    @Override
+    public XorShift1024Star split() {
+        long[] t = new long[STATE_WORDS];
+        long z = 0;
+        for (int i = 0; i < STATE_WORDS; i++) {
+            t[i] = mix64(nextL(WORD_BITS));
+            z |= t[i];
+        }
+        if (z == 0) { // all zero state would only produce zeroes
+            t[0] = 1L;
+        }
+        return new XorShift1024Star(t, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns a copy of this generator and advances this generator by
+     * 2^(512-depth) steps, so the first split is a {@link #jump()}. The part
+     * of a stream at depth k has 2^(512-k) steps of the sequence to itself,
+     * past depth 512 this falls back to {@link #split()}.
+     */
+    @Override
+    protected BitsStreamGenerator64 splitForStream(int depth) {
+        if (depth >= 512) {
+            return split();
+        }
+        XorShift1024Star r = new XorShift1024Star(s.clone(), p);
+        if (depth == 0) {
+            jump();
+        } else {
+            advance(BigInteger.ONE.shiftLeft(512 - depth));
+        }
+        return r;
+    }
+
+    /**
+     * Advances the state by n steps, as if {@link #nextLong()} had been called
+     * n times. A negative n moves the state backwards. See
+     * {@link #advance(BigInteger)}.
+     *
+     * @param n the number of steps
+     */
+    public void advance(long n) {
+        advance(BigInteger.valueOf(n));
+    }
+
+    /**
+     * Advances the state by n steps, as if {@link #nextLong()} had been called
+     * n times, n is taken modulo the period 2^1024-1 so a negative n moves
+     * the state backwards. The jump polynomial x^n mod the characteristic
+     * polynomial is the product of the cached polynomials x^(2^k) for the set
+     * bits k of n, so the cost is O(log n) polynomial multiplications and a
+     * single jump over 1024 steps. Stored values in super are reset.
+     *
+     * @param n the number of steps
+     */
+    public void advance(BigInteger n) {
+        n = n.mod(PERIOD);
+        if (n.signum() == 0) {
+            clear(); // reset stored values in super
+            return;
+        }
+        long[] poly = new long[STATE_WORDS];
+        poly[0] = 1L;
+        for (int k = 0, len = n.bitLength(); k < len; k++) {
+            if (n.testBit(k)) {
+                poly = multiplyMod(poly, jumpPoly(k));
+            }
+        }
+        jump(poly);
+    }
+
+    /**
+     * Returns x^(2^k) mod the characteristic polynomial, filling the cache up
+     * to k by repeated squaring if needed.
+     *
+     * @param k the exponent, 0 &le; k &lt; 1024
+     * @return the cached polynomial, must not be modified
+     */
+    private static synchronized long[] jumpPoly(int k) {
+        if (jump_table_size == 0) {
+            long[] x = new long[CHAR_POLY.length];
+            x[0] = 2L;
+            jump_table[jump_table_size++] = x;
+        }
+        while (jump_table_size <= k) {
+            long[] t = jump_table[jump_table_size - 1];
+            jump_table[jump_table_size++] = multiplyMod(t, t);
+        }
+        return jump_table[k];
+    }
+
+    /**
+     * Returns a * b mod the characteristic polynomial, over GF(2).
+     *
+     * @param a first factor
+     * @param b second factor
+     * @return the product
+     */
+    private static long[] multiplyMod(long[] a, long[] b) {
+        final int words = CHAR_POLY.length;
+        long[] r = new long[words];
+        long[] t = b.clone();
+        for (int i = 0; i < words; i++) {
+            long word = a[i];
+            for (int j = 0; j < WORD_BITS; j++) {
+                if ((word & (1L << j)) != 0) {
+                    for (int k = 0; k < words; k++) {
+                        r[k] ^= t[k];
+                    }
+                }
+                // t = t * x mod CHAR_POLY
+                boolean carry = t[words - 1] < 0;
+                for (int k = words - 1; k > 0; k--) {
+                    t[k] = (t[k] << 1) | (t[k - 1] >>> (WORD_BITS - 1));
+                }
+                t[0] <<= 1;
+                if (carry) {
+                    for (int k = 0; k < words; k++) {
+                        t[k] ^= CHAR_POLY[k];
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Replaces the state with the linear combination of the next
+     * <code>64 * poly.length</code> states given by the bits of
+     * <code>poly</code>, LSB of <code>poly[0]</code> first. With poly equal to
+     * x^n mod the characteristic polynomial of the generator this advances the
+     * state by n steps.
+     *
+     * @param poly the jump polynomial
+     */
+    private void jump(long[] poly) {
+        final long[] t = new long[STATE_WORDS];
+        for (long word : poly) {
+            for (int b = 0; b < WORD_BITS; b++) {
+                if ((word & (1L << b)) != 0) {
+                    for (int j = 0; j < STATE_WORDS; j++) {
+                        t[j] ^= s[(j + p) & 15];
+                    }
+                }
+                nextL(WORD_BITS);
+            }
+        }
+        for (int j = 0; j < STATE_WORDS; j++) {
+            s[(j + p) & 15] = t[j];
+        }
+        clear(); // reset stored values in super
     }
 
     /**
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.util.Arrays;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+
+/**
+ * A bank of XorShift1024* generators for giving each of a large number of
+ * entities, eg. the agents of an agent-based model, its own reproducible
+ * stream. The states are stored contiguously in one long array, 16 words per
+ * entity, with the state indexes in a byte array, about 129 bytes per
+ * entity against several hundred for an XorShift1024Star object, and the
+ * generators are addressed by entity index.
+ *
+ * Entity i is seeded in O(1) from the root seed and i, its sequence is the
+ * sequence of an XorShift1024Star seeded with {root_seed, i} by the
+ * {@link BitsStreamGenerator64.SeedScheme#MIX64} scheme. Different entities
+ * may be used from different threads, one entity only from one thread at a
+ * time.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public final class XorShift1024StarBank {
+
+    /* state words per entity */
+    private static final int S_WORDS = 16;
+    /* from Random */
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    /* the most entities, the states must fit in one array */
+    private static final int MAX_SIZE = (Integer.MAX_VALUE - 8) / S_WORDS;
+    /* states, word j of entity i at index i * 16 + j */
+    private final long[] st;
+    /* state indexes */
+    private final byte[] index;
+    /* the MIX64 running value after absorbing the length and the root seed */
+    private final long root_mix;
+
+    /**
+     * Bank of size generators, each seeded from root_seed and its index.
+     *
+     * @param size the count of entities
+     * @param root_seed the root seed
+     * @throws NotPositiveException if size is negative
+     * @throws NumberIsTooLargeException if size is larger than 134217727
+     */
+    public XorShift1024StarBank(int size, long root_seed) {
+        if (size < 0) {
+            throw new NotPositiveException(size);
+        }
+        if (size > MAX_SIZE) {
+            throw new NumberIsTooLargeException(size, MAX_SIZE, true);
+        }
+        st = new long[size * S_WORDS];
+        index = new byte[size];
+        // as BitsStreamGenerator64.mixSeed(new long[]{root_seed, i})
+        long z = BitsStreamGenerator64.mix64(2 + BitsStreamGenerator64.GOLDEN_GAMMA);
+        root_mix = BitsStreamGenerator64.mix64(z ^ root_seed) + BitsStreamGenerator64.GOLDEN_GAMMA;
+        for (int i = 0; i < size; i++) {
+            seed(i);
+        }
+    }
+
+    /**
+     * Returns the count of entities.
+     *
+     * @return the count of entities
+     */
+    public int size() {
+        return index.length;
+    }
+
+    /**
+     * Reseeds entity i from the root seed and i, restarting its sequence.
+     *
+     * @param i the entity
+     * @throws ArrayIndexOutOfBoundsException if i is out of range
+     */
+    public void seed(int i) {
+        index[i] = 0;
+        final int base = i * S_WORDS;
+        long z = BitsStreamGenerator64.mix64(root_mix ^ i) + BitsStreamGenerator64.GOLDEN_GAMMA;
+        long nonzero = 0;
+        for (int j = 0; j < S_WORDS; j++) {
+            st[base + j] = BitsStreamGenerator64.mix64(z += BitsStreamGenerator64.GOLDEN_GAMMA);
+            nonzero |= st[base + j];
+        }
+        if (nonzero == 0) { // all zero state would only produce zeroes
+            st[base] = 1L;
+        }
+    }
+
+    /**
+     * Returns the next long of entity i.
+     *
+     * @param i the entity
+     * @return the long
+     * @throws ArrayIndexOutOfBoundsException if i is out of range
+     */
+    public long nextLong(int i) {
+        final int base = i * S_WORDS;
+        int q = index[i];
+        long s0 = st[base + q];
+        q = (q + 1) & 15;
+        long s1 = st[base + q];
+        s1 ^= (s1 << 31);
+        s1 ^= (s1 >>> 11);
+        s0 ^= (s0 >>> 30);
+        s0 ^= s1;
+        st[base + q] = s0;
+        index[i] = (byte) q;
+        return s0 * XorShift1024Star.MULTIPLIER;
+    }
+
+    /**
+     * Returns the next double from Uniform(0,1) of entity i, the 53 MSBs of
+     * {@link #nextLong(int)} as in {@link XorShift1024Star#nextDouble()}.
+     *
+     * @param i the entity
+     * @return the double
+     * @throws ArrayIndexOutOfBoundsException if i is out of range
+     */
+    public double nextDouble(int i) {
+        return (nextLong(i) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with the next longs of entity i.
+     *
+     * @param i the entity
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws org.apache.commons.math3.exception.OutOfRangeException if off or
+     * len is out of array bounds
+     * @throws ArrayIndexOutOfBoundsException if i is out of range
+     */
+    public void nextLongs(int i, long[] dst, int off, int len) {
+        BitsStreamGenerator64.checkBounds(dst.length, off, len);
+        final int base = i * S_WORDS;
+        int q = index[i];
+        for (int k = off, end = off + len; k < end; k++) {
+            long s0 = st[base + q];
+            q = (q + 1) & 15;
+            long s1 = st[base + q];
+            s1 ^= (s1 << 31);
+            s1 ^= (s1 >>> 11);
+            s0 ^= (s0 >>> 30);
+            s0 ^= s1;
+            st[base + q] = s0;
+            dst[k] = s0 * XorShift1024Star.MULTIPLIER;
+        }
+        index[i] = (byte) q;
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with the next doubles from Uniform(0,1) of entity i.
+     *
+     * @param i the entity
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws org.apache.commons.math3.exception.OutOfRangeException if off or
+     * len is out of array bounds
+     * @throws ArrayIndexOutOfBoundsException if i is out of range
+     */
+    public void nextDoubles(int i, double[] dst, int off, int len) {
+        BitsStreamGenerator64.checkBounds(dst.length, off, len);
+        final int base = i * S_WORDS;
+        int q = index[i];
+        for (int k = off, end = off + len; k < end; k++) {
+            long s0 = st[base + q];
+            q = (q + 1) & 15;
+            long s1 = st[base + q];
+            s1 ^= (s1 << 31);
+            s1 ^= (s1 >>> 11);
+            s0 ^= (s0 >>> 30);
+            s0 ^= s1;
+            st[base + q] = s0;
+            dst[k] = ((s0 * XorShift1024Star.MULTIPLIER) >>> 11) * DOUBLE_UNIT;
+        }
+        index[i] = (byte) q;
+    }
+
+    /**
+     * Returns a standalone generator with the current state of entity i, eg.
+     * for passing the stream of one entity to code taking a
+     * {@link BitsStreamGenerator64}. The bank is not changed.
+     *
+     * @param i the entity
+     * @return the generator
+     * @throws ArrayIndexOutOfBoundsException if i is out of range
+     */
+    public XorShift1024Star getGenerator(int i) {
+        final int base = i * S_WORDS;
+        return new XorShift1024Star(Arrays.copyOfRange(st, base, base + S_WORDS), index[i]);
+    }
+}
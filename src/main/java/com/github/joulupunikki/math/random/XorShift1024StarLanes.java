@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+/**
+ * Bulk generator stepping several XorShift1024* states in lockstep. The
+ * recurrence of a single XorShift1024Star is a serial dependency chain, here
+ * the lanes are independent and one step of all lanes can use instruction
+ * level or SIMD parallelism. Lane k starts from the state of
+ * XorShift1024Star(seed) advanced by k * 2^512 steps with
+ * {@link XorShift1024Star#jump()}, so the lanes do not overlap.
+ *
+ * The output interleaves the lanes, element i * lanes + k of the sequence is
+ * the i:th output of lane k. The sequence does not depend on how it is
+ * divided between calls of the fill methods, a double takes the 53 MSBs of
+ * one long as in {@link XorShift1024Star#nextDouble()}.
+ *
+ * With 2, 4 or 8 lanes the steps are done with the incubating Vector API
+ * when the library is built with the Vector API engine (profile vector) and
+ * module jdk.incubator.vector is available at runtime (run with
+ * <code>--add-modules jdk.incubator.vector</code>) and the preferred vector
+ * size of the platform holds all lanes, otherwise with a scalar loop over
+ * the lanes. Both give the same sequence. Not thread safe.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public final class XorShift1024StarLanes {
+
+    /* state words per lane */
+    private static final int S_WORDS = 16;
+    /* from Random */
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    /* the vector engine class, loaded reflectively */
+    private static final String VECTOR_ENGINE = "com.github.joulupunikki.math.random.XorShift1024StarVectorEngine";
+    /* lane count */
+    private final int lanes;
+    /* state, word j of lane k at index j * lanes + k */
+    private final long[] st;
+    /* index of the word the next step reads first */
+    private int q = 0;
+    /* outputs of one step not yet handed out */
+    private final long[] buf;
+    /* index of the next unused output in buf, lanes if none */
+    private int buf_pos;
+    /* the stepping loops */
+    private final Engine engine;
+
+    /**
+     * Multi-lane generator, lane 0 seeded as XorShift1024Star(seed), using
+     * the Vector API if available.
+     *
+     * @param lanes the count of lanes
+     * @param seed the seed
+     * @throws NotStrictlyPositiveException if lanes is not positive
+     */
+    public XorShift1024StarLanes(int lanes, long seed) {
+        this(lanes, seed, true);
+    }
+
+    /**
+     * Multi-lane generator, lane 0 seeded as XorShift1024Star(seed).
+     *
+     * @param lanes the count of lanes
+     * @param seed the seed
+     * @param vectorize if false the scalar loop is always used
+     * @throws NotStrictlyPositiveException if lanes is not positive
+     */
+    XorShift1024StarLanes(int lanes, long seed, boolean vectorize) {
+        if (lanes < 1) {
+            throw new NotStrictlyPositiveException(lanes);
+        }
+        this.lanes = lanes;
+        st = new long[S_WORDS * lanes];
+        buf = new long[lanes];
+        buf_pos = lanes;
+        XorShift1024Star rng = new XorShift1024Star(seed);
+        for (int k = 0; k < lanes; k++) {
+            if (k > 0) {
+                rng.jump();
+            }
+            for (int j = 0; j < S_WORDS; j++) {
+                st[j * lanes + k] = rng.stateWord(j);
+            }
+        }
+        Engine e = vectorize ? vectorEngine(lanes) : null;
+        engine = e != null ? e : new ScalarEngine(lanes);
+    }
+
+    /**
+     * Loads the Vector API engine for the lane count.
+     *
+     * @param lanes the count of lanes
+     * @return the engine or null if the Vector API is not available or does
+     * not fit the lane count
+     */
+    private static Engine vectorEngine(int lanes) {
+        try {
+            return (Engine) Class.forName(VECTOR_ENGINE)
+                    .getDeclaredMethod("create", int.class)
+                    .invoke(null, lanes);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // engine not built or module jdk.incubator.vector not resolved
+        }
+    }
+
+    /**
+     * Returns the count of lanes.
+     *
+     * @return the count of lanes
+     */
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Tells whether the steps are done with the Vector API.
+     *
+     * @return true if vectorized
+     */
+    public boolean isVectorized() {
+        return !(engine instanceof ScalarEngine);
+    }
+
+    /**
+     * Returns the next long of the interleaved sequence.
+     *
+     * @return the long
+     */
+    public long nextLong() {
+        if (buf_pos == lanes) {
+            q = engine.longs(st, q, buf, 0, 1);
+            buf_pos = 0;
+        }
+        return buf[buf_pos++];
+    }
+
+    /**
+     * Returns the next double from Uniform(0,1) of the interleaved sequence.
+     *
+     * @return the double
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Fills the array with the next longs of the interleaved sequence.
+     *
+     * @param dst the array to fill
+     */
+    public void fill(long[] dst) {
+        fill(dst, 0, dst.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with the next longs of the interleaved sequence.
+     *
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws org.apache.commons.math3.exception.OutOfRangeException if off or
+     * len is out of array bounds
+     */
+    public void fill(long[] dst, int off, int len) {
+        BitsStreamGenerator64.checkBounds(dst.length, off, len);
+        int end = off + len;
+        while (buf_pos < lanes && off < end) {
+            dst[off++] = buf[buf_pos++];
+        }
+        final int steps = (end - off) / lanes;
+        q = engine.longs(st, q, dst, off, steps);
+        off += steps * lanes;
+        if (off < end) {
+            q = engine.longs(st, q, buf, 0, 1);
+            buf_pos = 0;
+            while (off < end) {
+                dst[off++] = buf[buf_pos++];
+            }
+        }
+    }
+
+    /**
+     * Fills the array with the next doubles from Uniform(0,1) of the
+     * interleaved sequence.
+     *
+     * @param dst the array to fill
+     */
+    public void fill(double[] dst) {
+        fill(dst, 0, dst.length);
+    }
+
+    /**
+     * Fills <code>len</code> elements of <code>dst</code> starting at
+     * <code>off</code> with the next doubles from Uniform(0,1) of the
+     * interleaved sequence.
+     *
+     * @param dst the array to fill
+     * @param off index of the first element to fill
+     * @param len number of elements to fill
+     * @throws org.apache.commons.math3.exception.OutOfRangeException if off or
+     * len is out of array bounds
+     */
+    public void fill(double[] dst, int off, int len) {
+        BitsStreamGenerator64.checkBounds(dst.length, off, len);
+        int end = off + len;
+        while (buf_pos < lanes && off < end) {
+            dst[off++] = (buf[buf_pos++] >>> 11) * DOUBLE_UNIT;
+        }
+        final int steps = (end - off) / lanes;
+        q = engine.doubles(st, q, dst, off, steps);
+        off += steps * lanes;
+        if (off < end) {
+            q = engine.longs(st, q, buf, 0, 1);
+            buf_pos = 0;
+            while (off < end) {
+                dst[off++] = (buf[buf_pos++] >>> 11) * DOUBLE_UNIT;
+            }
+        }
+    }
+
+    /**
+     * Steps all lanes of the state in lockstep, writing the outputs of each
+     * step to consecutive elements.
+     */
+    abstract static class Engine {
+
+        /**
+         * Writes steps * lanes longs starting at off.
+         *
+         * @param st the state
+         * @param q the index of the word the next step reads first
+         * @param dst the array to fill
+         * @param off index of the first element to fill
+         * @param steps count of steps
+         * @return the new index q
+         */
+        abstract int longs(long[] st, int q, long[] dst, int off, int steps);
+
+        /**
+         * Writes steps * lanes doubles starting at off.
+         *
+         * @param st the state
+         * @param q the index of the word the next step reads first
+         * @param dst the array to fill
+         * @param off index of the first element to fill
+         * @param steps count of steps
+         * @return the new index q
+         */
+        abstract int doubles(long[] st, int q, double[] dst, int off, int steps);
+    }
+
+    /**
+     * The state update of {@link XorShift1024Star} in a loop over the lanes.
+     */
+    private static final class ScalarEngine extends Engine {
+
+        private final int lanes;
+
+        ScalarEngine(int lanes) {
+            this.lanes = lanes;
+        }
+
+        @Override
+        int longs(long[] st, int q, long[] dst, int off, int steps) {
+            final int n = lanes;
+            for (int i = 0; i < steps; i++) {
+                final int a = q * n;
+                q = (q + 1) & 15;
+                final int b = q * n;
+                for (int k = 0; k < n; k++) {
+                    long s0 = st[a + k];
+                    long s1 = st[b + k];
+                    s1 ^= (s1 << 31);
+                    s1 ^= (s1 >>> 11);
+                    s0 ^= (s0 >>> 30);
+                    s0 ^= s1;
+                    st[b + k] = s0;
+                    dst[off + k] = s0 * XorShift1024Star.MULTIPLIER;
+                }
+                off += n;
+            }
+            return q;
+        }
+
+        @Override
+        int doubles(long[] st, int q, double[] dst, int off, int steps) {
+            final int n = lanes;
+            for (int i = 0; i < steps; i++) {
+                final int a = q * n;
+                q = (q + 1) & 15;
+                final int b = q * n;
+                for (int k = 0; k < n; k++) {
+                    long s0 = st[a + k];
+                    long s1 = st[b + k];
+                    s1 ^= (s1 << 31);
+                    s1 ^= (s1 >>> 11);
+                    s0 ^= (s0 >>> 30);
+                    s0 ^= s1;
+                    st[b + k] = s0;
+                    dst[off + k] = ((s0 * XorShift1024Star.MULTIPLIER) >>> 11) * DOUBLE_UNIT;
+                }
+                off += n;
+            }
+            return q;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.nio.ByteBuffer;
+import java.util.random.RandomGenerator.LeapableGenerator;
+
+/**
+ * The xoshiro256 linear engine of Blackman and Vigna, "Scrambled linear
+ * pseudorandom number generators", ACM TOMS 47(4), 2021, shared by
+ * {@link Xoshiro256StarStar} and {@link Xoshiro256Plus} which differ only in
+ * the output function. Features: 256 state bits in four fields, no state
+ * array or index, so a loop over draws keeps the state in registers; period
+ * 2^256-1; jumps of 2^128 and 2^192 steps.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public abstract class Xoshiro256 extends BitsStreamGenerator64 implements LeapableGenerator {
+
+    /* date of mod in hex, append version (eg. "a2") if necessary */
+    private static final long serialVersionUID = 0x20150808L;
+    /* state bit count of this generator */
+    private static final int S_BITS = 256;
+    /* from Random */
+    static final double DOUBLE_UNIT = 0x1.0p-53;
+    /* jump polynomial x^(2^128) mod the characteristic polynomial, from Vigna */
+    private static final long[] JUMP = {
+        0x180ec6d3_3cfd0abaL, 0xd5a61266_f0c9392cL, 0xa9582618_e03fc9aaL, 0x39abdc45_29b1661cL
+    };
+    /* long jump polynomial x^(2^192) mod the characteristic polynomial, from Vigna */
+    private static final long[] LONG_JUMP = {
+        0x76e15d3e_fefdcbbfL, 0xc5004e44_1c522fb3L, 0x77710069_854ee241L, 0x39109bb0_2acbe635L
+    };
+    /* state */
+    long s0;
+    long s1;
+    long s2;
+    long s3;
+
+    Xoshiro256() {
+        STATE_BITS = S_BITS;
+        STATE_WORDS = STATE_BITS / WORD_BITS;
+    }
+
+    /**
+     * Copy of the original generator: the state, the values stored between
+     * calls and the modes.
+     *
+     * @param original the generator to copy
+     */
+    Xoshiro256(Xoshiro256 original) {
+        this();
+        s0 = original.s0;
+        s1 = original.s1;
+        s2 = original.s2;
+        s3 = original.s3;
+        copyStoredValues(original);
+    }
+
+    /**
+     * The state transition, without the output function.
+     */
+    private void transition() {
+        final long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+    }
+
+    /**
+     * Advances the state by 2^128 steps, as if {@link #nextLong()} had been
+     * called 2^128 times. Calling jump() repeatedly on one seeded generator
+     * yields starting points of 2^128 long non-overlapping subsequences, eg.
+     * for parallel workers. Stored values in super are reset.
+     */
+    @Override
+    public void jump() {
+        jump(JUMP);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 2^128
+     */
+    @Override
+    public double jumpDistance() {
+        return 0x1.0p128;
+    }
+
+    /**
+     * Advances the state by 2^192 steps, see {@link #jump()}. Each long jump
+     * yields room for 2^64 jumps, eg. one long jump per machine and jumps
+     * for the threads of a machine.
+     */
+    public void longJump() {
+        jump(LONG_JUMP);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Same as {@link #longJump()}.
+     */
+    @Override
+    public void leap() {
+        longJump();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 2^192
+     */
+    @Override
+    public double leapDistance() {
+        return 0x1.0p192;
+    }
+
+    /**
+     * Replaces the state with the linear combination of the next 256 states
+     * given by the bits of poly, LSB of <code>poly[0]</code> first.
+     *
+     * @param poly the jump polynomial
+     */
+    private void jump(long[] poly) {
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+        for (long word : poly) {
+            for (int b = 0; b < WORD_BITS; b++) {
+                if ((word & (1L << b)) != 0) {
+                    t0 ^= s0;
+                    t1 ^= s1;
+                    t2 ^= s2;
+                    t3 ^= s3;
+                }
+                transition();
+            }
+        }
+        s0 = t0;
+        s1 = t1;
+        s2 = t2;
+        s3 = t3;
+        clear(); // reset stored values in super
+    }
+
+    /**
+     * Returns a copy of this generator, no seeding is done, the copy
+     * continues the sequence of the original exactly.
+     *
+     * @return the copy
+     */
+    @Override
+    public abstract Xoshiro256 copy();
+
+    /**
+     * Returns the state for a generator split off this one, the next four
+     * longs of this generator passed through {@link #mix64(long)}.
+     *
+     * @return the state
+     */
+    long[] splitState() {
+        long[] t = new long[STATE_WORDS];
+        long z = 0;
+        for (int i = 0; i < STATE_WORDS; i++) {
+            t[i] = mix64(nextL(WORD_BITS));
+            z |= t[i];
+        }
+        if (z == 0) { // all zero state would only produce zeroes
+            t[0] = 1L;
+        }
+        return t;
+    }
+
+    public Object getState() {
+        return (Object) new long[]{s0, s1, s2, s3};
+    }
+
+    /**
+     * Attention: this method sets the state words to the first four longs of
+     * state, a zero state will only produce zeroes, a shorter array will only
+     * reset state partially. In general the setSeed() methods should be used
+     * to seed the generator.
+     *
+     * @param state
+     */
+    @Override
+    public void setState(Object state) {
+        long[] seed = (long[]) state;
+        final int len = seed.length;
+        if (len > 0) {
+            s0 = seed[0];
+        }
+        if (len > 1) {
+            s1 = seed[1];
+        }
+        if (len > 2) {
+            s2 = seed[2];
+        }
+        if (len > 3) {
+            s3 = seed[3];
+        }
+        clear(); // reset stored values in super
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 4, the state words
+     */
+    @Override
+    protected int getGeneratorStateLength() {
+        return STATE_WORDS;
+    }
+
+    @Override
+    protected void saveGeneratorState(long[] dst, int off) {
+        dst[off] = s0;
+        dst[off + 1] = s1;
+        dst[off + 2] = s2;
+        dst[off + 3] = s3;
+    }
+
+    @Override
+    protected void restoreGeneratorState(long[] src, int off) {
+        s0 = src[off];
+        s1 = src[off + 1];
+        s2 = src[off + 2];
+        s3 = src[off + 3];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The 4 state words, 32 bytes.
+     */
+    @Override
+    protected void writeGeneratorState(ByteBuffer dst) {
+        dst.putLong(s0).putLong(s1).putLong(s2).putLong(s3);
+    }
+
+    @Override
+    protected void readGeneratorState(ByteBuffer src, long[] dst, int off) {
+        for (int i = 0; i < 4; i++) {
+            dst[off + i] = src.getLong();
+        }
+    }
+}
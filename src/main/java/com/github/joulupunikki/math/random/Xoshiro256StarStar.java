@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+/**
+ * Implements the xoshiro256** prng of Blackman and Vigna, see {@link Xoshiro256}.
+ * All 64 output bits pass BigCrush of TestU01, the general purpose choice of
+ * the two xoshiro256 generators. Equivalent to the reference implementation
+ * when seeded with {@link #setState(Object)}.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public final class Xoshiro256StarStar extends Xoshiro256 {
+
+    /* date of mod in hex, append version (eg. "a2") if necessary */
+    private static final long serialVersionUID = 0x20150808L;
+
+    /**
+     * Generator seeded from time and a unique counter, without secure hashing
+     * so that many generators can be created quickly from many threads.
+     */
+    public Xoshiro256StarStar() {
+        timeSeed();
+    }
+
+    public Xoshiro256StarStar(int seed) {
+        setSeed(seed);
+    }
+
+    public Xoshiro256StarStar(int[] seed) {
+        setSeed(seed);
+    }
+
+    public Xoshiro256StarStar(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Generator seeded with the given seed scheme, which is also used by later
+     * calls to setSeed().
+     *
+     * @param seed the seed
+     * @param scheme the seed scheme
+     */
+    public Xoshiro256StarStar(long seed, SeedScheme scheme) {
+        setSeedScheme(scheme);
+        setSeed(seed);
+    }
+
+    /**
+     * Copy of the original generator: the state, the values stored between
+     * calls and the modes. No seeding is done, the copy continues the
+     * sequence of the original exactly.
+     *
+     * @param original the generator to copy
+     */
+    public Xoshiro256StarStar(Xoshiro256StarStar original) {
+        super(original);
+    }
+
+    /**
+     * Generator with the given state, no seeding is done.
+     *
+     * @param state the 4 state words
+     */
+    Xoshiro256StarStar(long[] state) {
+        setState(state);
+    }
+
+    /**
+     * Advances the state and returns the output of the state before.
+     *
+     * @return the output
+     */
+    private long step() {
+        final long r = Long.rotateLeft(s1 * 5, 7) * 9;
+        final long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return r;
+    }
+
+    @Override
+    protected final long nextL(int bits) {
+        return step() >>> (WORD_BITS - bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and calling the state update directly, so that the call does not
+     * go through the shared, possibly megamorphic, {@link #nextL(int)} call
+     * site of the superclass.
+     */
+    @Override
+    public final long nextLong() {
+        return step();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and calling the state update directly, see {@link #nextLong()}.
+     */
+    @Override
+    public final double nextDouble() {
+        return (step() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Final and calling the state update directly when a new long is needed,
+     * see {@link #nextLong()}. The sequence is that of the superclass.
+     */
+    @Override
+    public final int nextInt() {
+        return hasStoredInt() ? super.nextInt() : pairInts(step());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The state update of {@link #nextL(int)} inlined into a loop over local
+     * copies of the state words.
+     */
+    @Override
+    public void nextLongs(long[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        long s0 = this.s0;
+        long s1 = this.s1;
+        long s2 = this.s2;
+        long s3 = this.s3;
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = Long.rotateLeft(s1 * 5, 7) * 9;
+            final long t = s1 << 17;
+            s2 ^= s0;
+            s3 ^= s1;
+            s1 ^= s2;
+            s0 ^= s3;
+            s2 ^= t;
+            s3 = Long.rotateLeft(s3, 45);
+        }
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The state update of {@link #nextL(int)} inlined into a loop over local
+     * copies of the state words.
+     */
+    @Override
+    public void nextDoubles(double[] dst, int off, int len) {
+        checkBounds(dst.length, off, len);
+        long s0 = this.s0;
+        long s1 = this.s1;
+        long s2 = this.s2;
+        long s3 = this.s3;
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = ((Long.rotateLeft(s1 * 5, 7) * 9) >>> 11) * DOUBLE_UNIT;
+            final long t = s1 << 17;
+            s2 ^= s0;
+            s3 ^= s1;
+            s1 ^= s2;
+            s0 ^= s3;
+            s2 ^= t;
+            s3 = Long.rotateLeft(s3, 45);
+        }
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    /**
+     * Returns a copy of this generator, see {@link #Xoshiro256StarStar(Xoshiro256StarStar)}.
+     *
+     * @return the copy
+     */
+    @Override
+    public Xoshiro256StarStar copy() {
+        return new Xoshiro256StarStar(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The 4 state words of the child are the next 4 longs of this generator
+     * passed through {@link #mix64(long)}, no SHA-512 hashing is done.
+     */
+    @Override
+    public Xoshiro256StarStar split() {
+        return new Xoshiro256StarStar(splitState());
+    }
+}
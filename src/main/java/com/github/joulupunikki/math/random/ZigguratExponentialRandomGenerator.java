@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Exponential generator with mean 1 using the Ziggurat method of Marsaglia and
+ * Tsang with 256 layers, see {@link Ziggurat}. Also used by
+ * {@link BitsStreamGenerator64#nextExponential()} and
+ * {@link com.github.joulupunikki.math.distribution.ZigguratExponentialDistribution}.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class ZigguratExponentialRandomGenerator {
+
+    /* start of the tail, the right edge of the base layer rectangle */
+    private static final double R = 7.697117470131049;
+    /* area of each layer, R * f(R) + the tail area beyond R */
+    private static final double V = (R + 1) * f(R);
+    /* the layers */
+    private static final Ziggurat ZIGGURAT = new Ziggurat(R, V, false) {
+        @Override
+        double density(double x) {
+            return f(x);
+        }
+
+        @Override
+        double inverseDensity(double y) {
+            return -FastMath.log(y);
+        }
+
+        @Override
+        double tail(BitsStreamGenerator64 rng) {
+            // exponential beyond R
+            return R - FastMath.log(1 - rng.nextDouble());
+        }
+    };
+
+    /* the source of bits */
+    private final BitsStreamGenerator64 generator;
+
+    /**
+     * Creates a new generator.
+     *
+     * @param generator the underlying generator
+     */
+    public ZigguratExponentialRandomGenerator(BitsStreamGenerator64 generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Returns an exponential double with mean 1.
+     *
+     * @return a double from Exp(1)
+     */
+    public double nextExponential() {
+        return nextExponential(generator);
+    }
+
+    /**
+     * Fills the array with exponential doubles with mean 1.
+     *
+     * @param dst the array to fill
+     */
+    public void nextExponentials(double[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = nextExponential(generator);
+        }
+    }
+
+    /**
+     * Returns an exponential double with mean 1 drawn from rng.
+     *
+     * @param rng the source of bits
+     * @return a double from Exp(1)
+     */
+    static double nextExponential(BitsStreamGenerator64 rng) {
+        return ZIGGURAT.sample(rng);
+    }
+
+    /**
+     * Unnormalized exponential density.
+     */
+    private static double f(double x) {
+        return FastMath.exp(-x);
+    }
+}
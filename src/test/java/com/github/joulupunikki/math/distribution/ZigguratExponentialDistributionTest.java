@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.distribution;
+
+import com.github.joulupunikki.math.random.XorShift1024Star;
+import com.github.joulupunikki.math.random.ZigguratExponentialRandomGenerator;
+import org.apache.commons.math3.distribution.ExponentialDistribution;
+import org.apache.commons.math3.distribution.ExponentialDistributionTest;
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs the tests of ExponentialDistributionTest, including its sampling
+ * tests, against ZigguratExponentialDistribution.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class ZigguratExponentialDistributionTest extends ExponentialDistributionTest {
+
+    public ZigguratExponentialDistributionTest() {
+    }
+
+    @Override
+    public ExponentialDistribution makeDistribution() {
+        return new ZigguratExponentialDistribution(new XorShift1024Star(1), 5.0);
+    }
+
+    @Test
+    public void testZigguratSampling() {
+        ExponentialDistribution distribution = makeDistribution();
+        double[] sample = distribution.sample(100000);
+        Assert.assertEquals(5.0, StatUtils.mean(sample), 0.1);
+        Assert.assertEquals(25.0, StatUtils.variance(sample), 1.0);
+        Assert.assertTrue(new KolmogorovSmirnovTest().kolmogorovSmirnovTest(new ExponentialDistribution(5.0), sample) > 0.01);
+        // the tail beyond R = 7.697 of Exp(1)
+        int count = 0;
+        for (double d : sample) {
+            if (d > 5.0 * 8.0) {
+                count++;
+            }
+        }
+        double expected = Math.exp(-8.0) * sample.length;
+        Assert.assertEquals(expected, count, 4 * Math.sqrt(expected) + 1);
+    }
+
+    @Test
+    public void testGenerator() {
+        ZigguratExponentialRandomGenerator generator = new ZigguratExponentialRandomGenerator(new XorShift1024Star(2));
+        XorShift1024Star expected = new XorShift1024Star(2);
+        double[] r = new double[100];
+        generator.nextExponentials(r);
+        for (int i = 0; i < r.length; i++) {
+            Assert.assertEquals(expected.nextExponential(), r[i], 0);
+        }
+        Assert.assertEquals(expected.nextExponential(), generator.nextExponential(), 0);
+    }
+}
@@ -108,5 +108,10 @@ public class BitsStreamGenerator64SeedTest extends RandomGeneratorAbstractTest {
         public void setState(Object state) {
             throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
         }
+
+        @Override
+        public BitsStreamGenerator64 split() {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
     }
 }
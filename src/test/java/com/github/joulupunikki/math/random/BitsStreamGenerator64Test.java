@@ -15,9 +15,14 @@
  */
 package com.github.joulupunikki.math.random;
 
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
+import org.apache.commons.math3.exception.MathUnsupportedOperationException;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.RandomGeneratorAbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
 
 /**
  * Test cases for the BitStreamGenerator64 class, adapted from
@@ -82,6 +87,11 @@ public class BitsStreamGenerator64Test extends RandomGeneratorAbstractTest {
         public void setState(Object state) {
             throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
         }
+
+        @Override
+        public BitsStreamGenerator64 split() {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
     }
 
     /**
@@ -96,6 +106,84 @@ public class BitsStreamGenerator64Test extends RandomGeneratorAbstractTest {
             return next(bits);
         }
     }
+
+    /**
+     * Generator returning a fixed 64-bit word, for checking interval
+     * endpoints.
+     */
+    static class ConstantBitsGenerator extends TestBitStreamGenerator64 {
+
+        private static final long serialVersionUID = 1L;
+        private final long word;
+
+        ConstantBitsGenerator(long word) {
+            this.word = word;
+        }
+
+        @Override
+        protected long nextL(int bits) {
+            return word >>> (Long.SIZE - bits);
+        }
+    }
+
+    @Test
+    public void testNextDoubleOpenEndpoints() {
+        Assert.assertEquals(0x1.0p-53, new ConstantBitsGenerator(0L).nextDoubleOpen(), 0);
+        Assert.assertEquals(1 - 0x1.0p-53, new ConstantBitsGenerator(-1L).nextDoubleOpen(), 0);
+    }
+
+    @Test
+    public void testNextDoubleClosedEndpoints() {
+        Assert.assertEquals(0.0, new ConstantBitsGenerator(0L).nextDoubleClosed(), 0);
+        Assert.assertEquals(1.0, new ConstantBitsGenerator(-1L).nextDoubleClosed(), 0);
+        // both neighbours of 2^54 - 1 map to 2^53 - 1
+        Assert.assertEquals(1 - 0x1.0p-53, new ConstantBitsGenerator(-2L << 10).nextDoubleClosed(), 0);
+        Assert.assertEquals(1 - 0x1.0p-53, new ConstantBitsGenerator(-3L << 10).nextDoubleClosed(), 0);
+    }
+
+    @Test
+    public void testNextDoubleRangeEndpoints() {
+        Assert.assertEquals(-3.0, new ConstantBitsGenerator(0L).nextDouble(-3.0, 5.0), 0);
+        double hi = 1.0 + 0x1.0p-52;
+        double x = new ConstantBitsGenerator(-1L).nextDouble(1.0, hi);
+        Assert.assertTrue(x < hi);
+        Assert.assertEquals(1.0, x, 0);
+    }
+
+    @Test(expected = MathUnsupportedOperationException.class)
+    public void testSaveStateUnsupported() {
+        new TestBitStreamGenerator64().saveState(new long[100]);
+    }
+
+    @Test
+    public void testUniqueSeed() throws InterruptedException {
+        final int threads = 4;
+        final int n = 5000;
+        final long[][] seeds = new long[threads][n];
+        Thread[] t = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int k = i;
+            t[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < n; j++) {
+                        seeds[k][j] = BitsStreamGenerator64.uniqueSeed();
+                    }
+                }
+            };
+            t[i].start();
+        }
+        for (Thread thread : t) {
+            thread.join();
+        }
+        Set<Long> all = new HashSet<Long>();
+        for (long[] thread_seeds : seeds) {
+            for (long seed : thread_seeds) {
+                Assert.assertTrue(all.add(seed));
+            }
+        }
+    }
+
 //    @Test
 //    public void testSeed() {
 //        TestBitStreamGenerator64 gen = new TestBitStreamGenerator64();
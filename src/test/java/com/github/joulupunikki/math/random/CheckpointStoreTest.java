@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for CheckpointStore.
+ */
+public class CheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static XorShift1024Star[] generators(int n) {
+        XorShift1024Star[] r = new XorShift1024Star[n];
+        for (int i = 0; i < n; i++) {
+            r[i] = new XorShift1024Star(100 + i);
+        }
+        return r;
+    }
+
+    private static double[] draw(XorShift1024Star[] rngs) {
+        double[] r = new double[3 * rngs.length];
+        for (int i = 0; i < rngs.length; i++) {
+            r[3 * i] = rngs[i].nextInt();
+            r[3 * i + 1] = rngs[i].nextGaussian();
+            r[3 * i + 2] = rngs[i].nextDouble();
+        }
+        return r;
+    }
+
+    @Test
+    public void testCheckpointRestore() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("rng.ckpt");
+        XorShift1024Star[] rngs = generators(5);
+        double[] expected = null;
+        try (CheckpointStore store = new CheckpointStore(file, rngs, 4)) {
+            Assert.assertEquals(-1, store.restore());
+            for (int tick = 1; tick <= 10; tick++) {
+                draw(rngs); // leaves ints and gaussians stored
+                Assert.assertEquals(tick % 4 == 0, store.tick());
+                if (tick == 8) {
+                    expected = draw(rngs);
+                }
+            }
+            Assert.assertEquals(10, store.getTicks());
+        }
+        // restart
+        XorShift1024Star[] restored = generators(5);
+        try (CheckpointStore store = new CheckpointStore(file, restored, 4)) {
+            Assert.assertEquals(8, store.restore());
+            Assert.assertEquals(8, store.getTicks());
+            Assert.assertArrayEquals(expected, draw(restored), 0);
+            // the next checkpoint goes to the other copy
+            store.checkpoint();
+            expected = draw(restored);
+        }
+        restored = generators(5);
+        try (CheckpointStore store = new CheckpointStore(file, restored, 4)) {
+            Assert.assertEquals(8, store.restore());
+            Assert.assertArrayEquals(expected, draw(restored), 0);
+        }
+    }
+
+    /**
+     * Overwrites a long word of the file.
+     */
+    private static void putWord(Path file, int word, long value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, value), (long) word * Long.BYTES);
+        }
+    }
+
+    @Test
+    public void testCorruptCheckpoint() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("rng.ckpt");
+        XorShift1024Star[] rngs = generators(5);
+        try (CheckpointStore store = new CheckpointStore(file, rngs, 1)) {
+            draw(rngs);
+            store.tick(); // copy 0
+        }
+        // header words: current copy at 3, tick count of copy 0 at 4, slots
+        // of 1 + 21 words of copy 0 from 6, the state index at 1 + 16
+        final int slot = 6 + 3 * 22;
+        long[][] corruptions = {{3, 2}, {3, -2}, {3, Long.MIN_VALUE}, {4, -1},
+            {slot, 20}, {slot, Long.MAX_VALUE}, {slot + 17, 16}, {slot + 22, 0}};
+        for (long[] corruption : corruptions) {
+            Path bad = folder.newFile().toPath();
+            Files.copy(file, bad, StandardCopyOption.REPLACE_EXISTING);
+            putWord(bad, (int) corruption[0], corruption[1]);
+            XorShift1024Star[] restored = generators(5);
+            try (CheckpointStore store = new CheckpointStore(bad, restored, 1)) {
+                store.restore();
+                Assert.fail("Expected MathIllegalArgumentException!");
+            } catch (MathIllegalArgumentException e) {
+                // ignored
+            }
+            Assert.assertArrayEquals(draw(generators(5)), draw(restored), 0);
+        }
+    }
+
+    @Test
+    public void testWrongFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("rng.ckpt");
+        new CheckpointStore(file, generators(3), 1).close();
+        try {
+            new CheckpointStore(file, generators(4), 1);
+            Assert.fail("Expected DimensionMismatchException!");
+        } catch (DimensionMismatchException e) {
+            // ignored
+        }
+        Path other = folder.newFile().toPath();
+        Files.write(other, new byte[100]);
+        try {
+            new CheckpointStore(other, generators(3), 1);
+            Assert.fail("Expected IOException!");
+        } catch (IOException e) {
+            // ignored
+        }
+        Assert.assertEquals(100, Files.size(other));
+    }
+}
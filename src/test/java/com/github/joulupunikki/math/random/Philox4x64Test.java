@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorAbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class Philox4x64Test extends RandomGeneratorAbstractTest {
+
+    /* Random123 known answers of philox4x64_10: counter, key, block */
+    private static final long[][][] kat = {
+        {{0L, 0L, 0L, 0L}, {0L, 0L},
+            {0x16554d9eca36314cL, 0xdb20fe9d672d0fdcL, 0xd7e772cee186176bL, 0x7e68b68aec7ba23bL}},
+        {{-1L, -1L, -1L, -1L}, {-1L, -1L},
+            {0x87b092c3013fe90bL, 0x438c3c67be8d0224L, 0x9cc7d7c69cd777b6L, 0xa09caebf594f0ba0L}},
+        {{0x243f6a8885a308d3L, 0x13198a2e03707344L, 0xa4093822299f31d0L, 0x082efa98ec4e6c89L},
+            {0x452821e638d01377L, 0xbe5466cf34e90c6cL},
+            {0xa528f45403e61d95L, 0x38c72dbd566e9788L, 0xa5a1610e72fd18b5L, 0x57bd43b5e52b7fe6L}}
+    };
+
+    @Override
+    public RandomGenerator makeGenerator() {
+        return new Philox4x64(1);
+    }
+
+    public Philox4x64Test() {
+    }
+
+    private static BigInteger counter(long[] c) {
+        BigInteger r = BigInteger.ZERO;
+        for (int i = c.length - 1; i >= 0; i--) {
+            r = r.shiftLeft(64).or(new BigInteger(Long.toUnsignedString(c[i])));
+        }
+        return r;
+    }
+
+    @Test
+    public void testKnownAnswers() {
+        for (long[][] v : kat) {
+            long[] block = new long[4];
+            Philox4x64.block(v[0], v[1], block);
+            Assert.assertArrayEquals(v[2], block);
+            // the generator hands out the block of its counter
+            Philox4x64 instance = new Philox4x64(v[1][0], v[1][1]);
+            instance.setCounter(counter(v[0]));
+            for (int i = 0; i < 4; i++) {
+                Assert.assertEquals(v[2][i], instance.nextLong());
+            }
+        }
+        // the counter wraps from 2^256 - 1 to 0
+        Philox4x64 instance = new Philox4x64(0, 0);
+        instance.setCounter(BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE));
+        instance.nextLong();
+        Assert.assertEquals(BigInteger.ONE.shiftLeft(258).subtract(BigInteger.valueOf(3)), instance.getPosition());
+        long[] r = new long[7];
+        instance.nextLongs(r, 0, 7);
+        Assert.assertEquals(kat[0][2][0], r[3]);
+        Assert.assertEquals(kat[0][2][3], r[6]);
+        Assert.assertEquals(BigInteger.valueOf(4), instance.getPosition());
+    }
+
+    @Test
+    public void testRandomAccess() {
+        final long k0 = 0x0123456789abcdefL;
+        final long k1 = 42;
+        Philox4x64 instance = new Philox4x64(k0, k1);
+        long[] expected = new long[1024];
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(BigInteger.valueOf(i), instance.getPosition());
+            expected[i] = instance.nextLong();
+        }
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], Philox4x64.random(k0, k1, i));
+        }
+        for (int c : new int[]{0, 1, 77, 249}) {
+            instance.setCounter(BigInteger.valueOf(c));
+            Assert.assertEquals(expected[4 * c], instance.nextLong());
+            for (int off = 0; off < 5; off++) {
+                for (int len = 0; len < 13; len++) {
+                    // a tail written past off + len would not fit
+                    long[] r = new long[off + len];
+                    Philox4x64.fill(k0, k1, c, r, off, len);
+                    for (int i = 0; i < off; i++) {
+                        Assert.assertEquals(0, r[i]);
+                    }
+                    for (int i = 0; i < len; i++) {
+                        Assert.assertEquals(expected[4 * c + i], r[off + i]);
+                    }
+                }
+            }
+        }
+        // bulk generation from any position
+        for (int skip = 0; skip < 5; skip++) {
+            instance.setCounter(BigInteger.ZERO);
+            for (int i = 0; i < skip; i++) {
+                instance.nextLong();
+            }
+            long[] r = new long[1000];
+            instance.nextLongs(r, 0, 501);
+            instance.nextLongs(r, 501, 499 - skip);
+            for (int i = 0; i < 1000 - skip; i++) {
+                Assert.assertEquals(expected[skip + i], r[i]);
+            }
+        }
+        // the static fill carries into the second counter word
+        long[] r = new long[8];
+        Philox4x64.fill(k0, k1, -1L, r, 0, 8);
+        instance.setCounter(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+        for (int i = 0; i < 8; i++) {
+            Assert.assertEquals(r[i], instance.nextLong());
+        }
+        try {
+            instance.setCounter(BigInteger.valueOf(-1));
+            Assert.fail("Expected NotPositiveException!");
+        } catch (NotPositiveException e) {
+            // ignored
+        }
+        try {
+            instance.setCounter(BigInteger.ONE.shiftLeft(256));
+            Assert.fail("Expected NumberIsTooLargeException!");
+        } catch (NumberIsTooLargeException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        Philox4x64 parent = new Philox4x64(1);
+        Philox4x64 child = parent.split();
+        parent.setSeed(1);
+        Philox4x64 again = parent.split();
+        for (int i = 0; i < 32; i++) {
+            Assert.assertEquals(child.nextLong(), again.nextLong());
+        }
+        // parent and child sequences should agree in about half of the bits
+        final int n = 10000;
+        long ones = 0;
+        for (int i = 0; i < n; i++) {
+            ones += Long.bitCount(parent.nextLong() ^ child.nextLong());
+        }
+        Assert.assertEquals(32.0, (double) ones / n, 0.1);
+    }
+
+    @Test
+    public void testSaveRestoreState() {
+        Philox4x64 instance = new Philox4x64(21);
+        for (int i = 0; i < 6; i++) {
+            instance.nextLong(); // index in the block not 0
+        }
+        instance.nextInt(); // int half stored
+        instance.nextGaussian(); // gaussian stored
+        Assert.assertEquals(15, instance.getStateLength());
+        long[] state = new long[17];
+        instance.saveState(state, 2);
+        ByteBuffer buffer = ByteBuffer.allocate(instance.getMaxStateBytes());
+        instance.writeState(buffer);
+        long[] expected = new long[20];
+        instance.nextLongs(expected);
+
+        Philox4x64 restored = new Philox4x64(1);
+        restored.restoreState(state, 2);
+        long[] r = new long[20];
+        restored.nextLongs(r);
+        Assert.assertArrayEquals(expected, r);
+        buffer.flip();
+        restored = new Philox4x64(2);
+        restored.readState(buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        restored.nextLongs(r);
+        Assert.assertArrayEquals(expected, r);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.MathUnsupportedOperationException;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for RecordingGenerator and ReplayGenerator.
+ */
+public class RecordingGeneratorTest {
+
+    @Test
+    public void testRecordReplay() throws IOException {
+        RecordingGenerator recorder = new RecordingGenerator(new XorShift1024Star(5), 100);
+        XorShift1024Star reference = new XorShift1024Star(5);
+        long[] expected = new long[1050];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = recorder.nextLong();
+            Assert.assertEquals(reference.nextLong(), expected[i]);
+        }
+        Assert.assertEquals(1050, recorder.getDraws());
+        Assert.assertEquals(11, recorder.getLog().size());
+
+        ReplayGenerator replay = new ReplayGenerator(new XorShift1024Star(1), recorder.getLog());
+        Assert.assertEquals(expected[0], replay.nextLong());
+        for (int draw : new int[]{1049, 0, 99, 100, 517, 1000, 1001}) {
+            replay.seek(draw);
+            Assert.assertEquals(draw, replay.getDraws());
+            for (int i = draw; i < Math.min(draw + 150, expected.length); i++) {
+                Assert.assertEquals(expected[i], replay.nextLong());
+            }
+        }
+        // past the last keyframe
+        replay.seek(1200);
+        for (int i = 1050; i < 1200; i++) {
+            reference.nextLong();
+        }
+        Assert.assertEquals(reference.nextLong(), replay.nextLong());
+
+        // the log in another process
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.getLog().writeTo(new DataOutputStream(bytes));
+        KeyframeLog log = KeyframeLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(11, log.size());
+        replay = new ReplayGenerator(new XorShift1024Star(1), log);
+        replay.seek(777);
+        Assert.assertEquals(expected[777], replay.nextLong());
+        Assert.assertEquals(expected[778] >>> 11, (long) (replay.nextDouble() * 0x1.0p53));
+    }
+
+    @Test
+    public void testBulkRecord() {
+        RecordingGenerator recorder = new RecordingGenerator(new XorShift1024Star(8), 64);
+        long[] expected = new long[1000];
+        recorder.nextLongs(expected, 0, 10);
+        expected[10] = recorder.nextLong();
+        recorder.nextLongs(expected, 11, 500);
+        double[] doubles = new double[489];
+        recorder.nextDoubles(doubles);
+        Assert.assertEquals(1000, recorder.getDraws());
+        Assert.assertEquals(1000 / 64 + 1, recorder.getLog().size());
+        ReplayGenerator replay = new ReplayGenerator(new XorShift1024Star(1), recorder.getLog());
+        XorShift1024Star reference = new XorShift1024Star(8);
+        for (int i = 0; i < 511; i++) {
+            Assert.assertEquals(reference.nextLong(), expected[i]);
+        }
+        replay.seek(130);
+        Assert.assertEquals(expected[130], replay.nextLong());
+        replay.seek(600);
+        Assert.assertEquals(doubles[600 - 511], replay.nextDouble(), 0);
+        replay.seek(999);
+        Assert.assertEquals(doubles[999 - 511], replay.nextDouble(), 0);
+    }
+
+    @Test
+    public void testSameSequence() {
+        // a fresh recorder has nothing stored, its first gaussian is drawn
+        RecordingGenerator recorder = new RecordingGenerator(new XorShift1024Star(1), 10);
+        XorShift1024Star reference = new XorShift1024Star(1);
+        for (int i = 0; i < 25; i++) {
+            Assert.assertEquals(reference.nextGaussian(), recorder.nextGaussian(), 0);
+            Assert.assertEquals(reference.nextInt(), recorder.nextInt());
+            Assert.assertEquals(reference.nextLong(), recorder.nextLong());
+            Assert.assertEquals(reference.nextDouble(), recorder.nextDouble(), 0);
+            Assert.assertEquals(reference.nextFloat(), recorder.nextFloat(), 0);
+        }
+    }
+
+    @Test
+    public void testCorruptLog() throws IOException {
+        RecordingGenerator recorder = new RecordingGenerator(new XorShift1024Star(5), 10);
+        for (int i = 0; i < 100; i++) {
+            recorder.nextLong();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.getLog().writeTo(new DataOutputStream(bytes));
+        byte[] good = bytes.toByteArray();
+        // truncated data, truncated header
+        for (int length : new int[]{good.length - 1, good.length - 8 * 17, 16, 10, 0}) {
+            assertNotLog(Arrays.copyOf(good, length));
+        }
+        // header fields at 4: interval, 8: state length, 12: count
+        int[][] headers = {
+            {0, 0}, {4, 0}, {4, -1}, {8, 0}, {8, -17}, {8, Integer.MAX_VALUE},
+            {12, -1}, {12, Integer.MAX_VALUE}, {12, Integer.MAX_VALUE / 17 + 1},
+            {12, 1 << 20}};
+        for (int[] header : headers) {
+            byte[] bad = good.clone();
+            ByteBuffer.wrap(bad).putInt(header[0], header[1]);
+            assertNotLog(bad);
+        }
+        // a short count reads a shorter log
+        byte[] shorter = good.clone();
+        ByteBuffer.wrap(shorter).putInt(12, 3);
+        Assert.assertEquals(3, readLog(shorter).size());
+    }
+
+    private static KeyframeLog readLog(byte[] bytes) throws IOException {
+        return KeyframeLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static void assertNotLog(byte[] bytes) {
+        try {
+            readLog(bytes);
+            Assert.fail("Expected IOException!");
+        } catch (IOException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testExceptions() {
+        RecordingGenerator recorder = new RecordingGenerator(new XorShift1024Star(5), 10);
+        try {
+            recorder.setSeed(1);
+            Assert.fail("Expected MathUnsupportedOperationException!");
+        } catch (MathUnsupportedOperationException e) {
+            // ignored
+        }
+        ReplayGenerator replay = new ReplayGenerator(new XorShift1024Star(1), recorder.getLog());
+        try {
+            replay.seek(-1);
+            Assert.fail("Expected NotPositiveException!");
+        } catch (NotPositiveException e) {
+            // ignored
+        }
+        try {
+            new ReplayGenerator(new RecordingGenerator(new XorShift1024Star(5), 10) {
+                @Override
+                public int getStateLength() {
+                    return 1;
+                }
+            }, recorder.getLog());
+            Assert.fail("Expected DimensionMismatchException!");
+        } catch (DimensionMismatchException e) {
+            // ignored
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorAbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class StripedRandomGeneratorTest extends RandomGeneratorAbstractTest {
+
+    @Override
+    public RandomGenerator makeGenerator() {
+        // one stripe so the sequence does not depend on the thread id
+        return new StripedRandomGenerator(1, 1);
+    }
+
+    public StripedRandomGeneratorTest() {
+    }
+
+    @Test
+    public void testStripeCount() {
+        Assert.assertEquals(1, new StripedRandomGenerator(1, 1).getStripeCount());
+        Assert.assertEquals(8, new StripedRandomGenerator(5, 1).getStripeCount());
+        Assert.assertEquals(8, new StripedRandomGenerator(8, 1).getStripeCount());
+        try {
+            new StripedRandomGenerator(0, 1);
+            Assert.fail("Expected NotStrictlyPositiveException!");
+        } catch (NotStrictlyPositiveException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testSingleThreadSequence() {
+        // a lone thread keeps using one stripe, which is a jump of the seed
+        StripedRandomGenerator instance = new StripedRandomGenerator(1, 1);
+        XorShift1024Star expected = new XorShift1024Star(1);
+        for (int i = 0; i < 32; i++) {
+            Assert.assertEquals(expected.nextLong(), instance.nextLong());
+        }
+        instance = new StripedRandomGenerator(4, 2);
+        long first = instance.nextLong();
+        instance.nextDouble();
+        instance.setSeed(2);
+        Assert.assertEquals(first, instance.nextLong());
+    }
+
+    @Test
+    public void testConcurrentUse() throws InterruptedException {
+        final StripedRandomGenerator instance = new StripedRandomGenerator(2, 1);
+        final int threads = 8;
+        final int n = 100000;
+        final double[] sums = new double[threads];
+        Thread[] t = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int k = i;
+            t[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < n; j++) {
+                        sums[k] += instance.nextDouble();
+                    }
+                }
+            };
+            t[i].start();
+        }
+        for (Thread thread : t) {
+            thread.join();
+        }
+        for (double sum : sums) {
+            Assert.assertEquals(0.5, sum / n, 0.01);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class ThreadLocalXorShift1024StarTest {
+
+    public ThreadLocalXorShift1024StarTest() {
+    }
+
+    /**
+     * Test of current method, of class ThreadLocalXorShift1024Star.
+     */
+    @Test
+    public void testCurrent() throws InterruptedException {
+        final XorShift1024Star main = ThreadLocalXorShift1024Star.current();
+        Assert.assertSame(main, ThreadLocalXorShift1024Star.current());
+        final XorShift1024Star[] other = new XorShift1024Star[2];
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                other[0] = ThreadLocalXorShift1024Star.current();
+                other[1] = ThreadLocalXorShift1024Star.current();
+            }
+        };
+        t.start();
+        t.join();
+        Assert.assertSame(other[0], other[1]);
+        Assert.assertNotSame(main, other[0]);
+        // this should fail randomly once in 2^64
+        Assert.assertNotEquals(main.nextLong(), other[0].nextLong());
+    }
+}
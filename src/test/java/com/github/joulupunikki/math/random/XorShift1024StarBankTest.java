@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for XorShift1024StarBank.
+ */
+public class XorShift1024StarBankTest {
+
+    private static XorShift1024Star standalone(long root_seed, int i) {
+        XorShift1024Star rng = new XorShift1024Star(0L, BitsStreamGenerator64.SeedScheme.MIX64);
+        rng.setSeed(new long[]{root_seed, i});
+        return rng;
+    }
+
+    @Test
+    public void testEntitiesMatchGenerators() {
+        final int n = 100;
+        XorShift1024StarBank bank = new XorShift1024StarBank(n, 42);
+        Assert.assertEquals(n, bank.size());
+        XorShift1024Star[] rngs = new XorShift1024Star[n];
+        for (int i = 0; i < n; i++) {
+            rngs[i] = standalone(42, i);
+        }
+        // interleaved use of the entities
+        for (int k = 0; k < 50; k++) {
+            for (int i = k % 3; i < n; i += 1 + k % 5) {
+                Assert.assertEquals(rngs[i].nextLong(), bank.nextLong(i));
+                Assert.assertEquals(rngs[i].nextDouble(), bank.nextDouble(i), 0);
+            }
+        }
+        long[] longs = new long[37];
+        double[] doubles = new double[41];
+        bank.nextLongs(7, longs, 2, 35);
+        bank.nextDoubles(7, doubles, 0, 41);
+        for (int k = 2; k < longs.length; k++) {
+            Assert.assertEquals(rngs[7].nextLong(), longs[k]);
+        }
+        for (double d : doubles) {
+            Assert.assertEquals(rngs[7].nextDouble(), d, 0);
+        }
+        XorShift1024Star copy = bank.getGenerator(7);
+        long t = rngs[7].nextLong();
+        Assert.assertEquals(t, copy.nextLong());
+        Assert.assertEquals(t, bank.nextLong(7)); // the bank is not changed
+        // reseeding restarts
+        bank.seed(7);
+        Assert.assertEquals(standalone(42, 7).nextLong(), bank.nextLong(7));
+        Assert.assertNotEquals(new XorShift1024StarBank(1, 43).nextLong(0), new XorShift1024StarBank(1, 42).nextLong(0));
+    }
+
+    @Test(expected = NotPositiveException.class)
+    public void testNegativeSize() {
+        new XorShift1024StarBank(-1, 1);
+    }
+}
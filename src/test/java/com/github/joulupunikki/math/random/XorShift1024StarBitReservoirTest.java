@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorAbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs the RandomGenerator tests with XorShift1024Star in bit reservoir mode.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class XorShift1024StarBitReservoirTest extends RandomGeneratorAbstractTest {
+
+    @Override
+    public RandomGenerator makeGenerator() {
+        XorShift1024Star generator = new XorShift1024Star(1);
+        generator.setBitReservoir(true);
+        return generator;
+    }
+
+    public XorShift1024StarBitReservoirTest() {
+    }
+
+    @Test
+    public void testBooleans() {
+        XorShift1024Star instance = (XorShift1024Star) makeGenerator();
+        XorShift1024Star expected = new XorShift1024Star(1);
+        Assert.assertTrue(instance.isBitReservoir());
+        Assert.assertFalse(expected.isBitReservoir());
+        // 64 booleans per long, MSB first
+        for (int k = 0; k < 4; k++) {
+            long t = expected.nextLong();
+            for (int i = 0; i < Long.SIZE; i++) {
+                Assert.assertEquals(t < 0, instance.nextBoolean());
+                t <<= 1;
+            }
+        }
+        // whole longs do not touch the reservoir
+        long t = expected.nextLong();
+        Assert.assertEquals(t < 0, instance.nextBoolean());
+        Assert.assertEquals(expected.nextLong(), instance.nextLong());
+        Assert.assertEquals(t << 1 < 0, instance.nextBoolean());
+    }
+
+    @Test
+    public void testBitsAcrossLongs() {
+        XorShift1024Star instance = (XorShift1024Star) makeGenerator();
+        XorShift1024Star expected = new XorShift1024Star(1);
+        long a = expected.nextLong();
+        long b = expected.nextLong();
+        // 24 + 24 bits from the first long, then 16 + 8 bits from both
+        Assert.assertEquals((int) (a >>> 40), instance.next(24));
+        Assert.assertEquals((int) (a >>> 16) & 0xffffff, instance.next(24));
+        int c = instance.next(24);
+        Assert.assertEquals((int) ((a & 0xffff) << 8 | b >>> 56), c);
+        Assert.assertEquals((float) ((b >>> 32) & 0xffffff) / (1 << 24), instance.nextFloat(), 0);
+        Assert.assertEquals((int) b, instance.nextInt());
+        // power of two bounds take log2(n) bits
+        long d = expected.nextLong();
+        Assert.assertEquals((int) (d >>> 61), instance.nextInt(8));
+        Assert.assertEquals(0, instance.nextInt(1));
+        Assert.assertEquals((int) (d >>> 60) & 1, instance.nextInt(2));
+    }
+
+    @Test
+    public void testBulk() {
+        XorShift1024Star instance = (XorShift1024Star) makeGenerator();
+        XorShift1024Star expected = (XorShift1024Star) makeGenerator();
+        instance.nextBoolean();
+        expected.nextBoolean();
+        int[] r = new int[9];
+        instance.nextInts(r);
+        for (int i = 0; i < r.length; i++) {
+            Assert.assertEquals(expected.nextInt(), r[i]);
+        }
+        float[] f = new float[9];
+        instance.nextFloats(f);
+        for (int i = 0; i < f.length; i++) {
+            Assert.assertEquals(expected.nextFloat(), f[i], 0);
+        }
+        Assert.assertEquals(expected.nextBoolean(), instance.nextBoolean());
+        // reseeding and turning the mode off empty the reservoir
+        instance.setSeed(1);
+        instance.setBitReservoir(false);
+        expected = new XorShift1024Star(1);
+        Assert.assertEquals(expected.nextInt(), instance.nextInt());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for XorShift1024StarLanes.
+ */
+public class XorShift1024StarLanesTest {
+
+    /**
+     * The interleaved sequence of lanes jumped copies of XorShift1024Star.
+     */
+    private static long[] expected(int lanes, long seed, int n) {
+        XorShift1024Star[] rng = new XorShift1024Star[lanes];
+        rng[0] = new XorShift1024Star(seed);
+        for (int k = 1; k < lanes; k++) {
+            rng[k] = rng[k - 1].jumped();
+        }
+        long[] r = new long[n];
+        for (int i = 0; i < n; i++) {
+            r[i] = rng[i % lanes].nextLong();
+        }
+        return r;
+    }
+
+    @Test
+    public void testLongs() {
+        for (int lanes : new int[]{1, 2, 3, 4, 8}) {
+            for (boolean vectorize : new boolean[]{false, true}) {
+                long[] expected = expected(lanes, 7, 1000);
+                XorShift1024StarLanes instance = new XorShift1024StarLanes(lanes, 7, vectorize);
+                long[] actual = new long[1000];
+                instance.fill(actual);
+                Assert.assertArrayEquals(expected, actual);
+                // chunks not aligned with the lanes
+                instance = new XorShift1024StarLanes(lanes, 7, vectorize);
+                actual = new long[1000];
+                int off = 0;
+                for (int len = 1; off + len <= actual.length; len += 3) {
+                    instance.fill(actual, off, len);
+                    off += len;
+                }
+                while (off < actual.length) {
+                    actual[off++] = instance.nextLong();
+                }
+                Assert.assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testDoubles() {
+        for (int lanes : new int[]{3, 4, 8}) {
+            for (boolean vectorize : new boolean[]{false, true}) {
+                long[] expected = expected(lanes, 11, 999);
+                XorShift1024StarLanes instance = new XorShift1024StarLanes(lanes, 11, vectorize);
+                double[] actual = new double[999];
+                Assert.assertEquals((expected[0] >>> 11) * 0x1.0p-53, instance.nextDouble(), 0);
+                instance.fill(actual, 1, 500);
+                instance.fill(actual, 501, 498);
+                for (int i = 1; i < actual.length; i++) {
+                    Assert.assertEquals((expected[i] >>> 11) * 0x1.0p-53, actual[i], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testVectorized() {
+        // set by surefire in profile vector, which compiles the engine and
+        // runs with --add-modules jdk.incubator.vector
+        Assert.assertEquals(Boolean.getBoolean("lanes.vectorized"), new XorShift1024StarLanes(2, 1).isVectorized());
+        Assert.assertFalse(new XorShift1024StarLanes(3, 1).isVectorized());
+        Assert.assertFalse(new XorShift1024StarLanes(4, 1, false).isVectorized());
+        Assert.assertEquals(4, new XorShift1024StarLanes(4, 1).getLanes());
+    }
+
+    @Test
+    public void testExceptions() {
+        try {
+            new XorShift1024StarLanes(0, 1);
+            Assert.fail("Expected NotStrictlyPositiveException!");
+        } catch (NotStrictlyPositiveException e) {
+            // ignored
+        }
+        try {
+            new XorShift1024StarLanes(4, 1).fill(new long[4], 2, 3);
+            Assert.fail("Expected OutOfRangeException!");
+        } catch (OutOfRangeException e) {
+            // ignored
+        }
+    }
+}
@@ -15,6 +15,20 @@
  */
 package com.github.joulupunikki.math.random;
 
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.random.RandomGeneratorFactory;
+import org.apache.commons.math3.exception.NotFiniteNumberException;
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.NullArgumentException;
+import org.apache.commons.math3.exception.NumberIsTooLargeException;
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.TestUtils;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.RandomGeneratorAbstractTest;
 import org.junit.Assert;
@@ -99,4 +113,638 @@ public class XorShift1024StarTest extends RandomGeneratorAbstractTest {
         s1 = (long[]) instance.getState();
         Assert.assertNotEquals(s0, s1);
     }
+
+    @Test
+    public void testNextLongs() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        long[] r = new long[results[1].length + 2];
+        instance.nextLongs(r, 1, results[1].length);
+        Assert.assertEquals(0L, r[0]);
+        Assert.assertEquals(0L, r[r.length - 1]);
+        for (int i = 0; i < results[1].length; i++) {
+            Assert.assertEquals(results[1][i], r[i + 1]);
+        }
+        // bulk and single calls continue the same sequence
+        XorShift1024Star expected = new XorShift1024Star(2);
+        instance.setSeed(2);
+        r = new long[37];
+        for (int k = 0; k < 3; k++) {
+            instance.nextLongs(r);
+            for (int i = 0; i < r.length; i++) {
+                Assert.assertEquals(expected.nextLong(), r[i]);
+            }
+            Assert.assertEquals(expected.nextLong(), instance.nextLong());
+        }
+    }
+
+    @Test
+    public void testNextDoubles() {
+        XorShift1024Star instance = new XorShift1024Star(3);
+        XorShift1024Star expected = new XorShift1024Star(3);
+        double[] r = new double[41];
+        for (int k = 0; k < 3; k++) {
+            instance.nextDoubles(r, 0, r.length - k);
+            for (int i = 0; i < r.length - k; i++) {
+                Assert.assertEquals(expected.nextDouble(), r[i], 0);
+            }
+            Assert.assertEquals(expected.nextDouble(), instance.nextDouble(), 0);
+        }
+    }
+
+    @Test
+    public void testNextInts() {
+        XorShift1024Star instance = new XorShift1024Star(4);
+        XorShift1024Star expected = new XorShift1024Star(4);
+        int[] r = new int[21];
+        // odd lengths leave and consume a stored 32 bit half
+        for (int len : new int[]{21, 1, 20, 0, 7}) {
+            instance.nextInts(r, 0, len);
+            for (int i = 0; i < len; i++) {
+                Assert.assertEquals(expected.nextInt(), r[i]);
+            }
+            Assert.assertEquals(expected.nextInt(), instance.nextInt());
+        }
+    }
+
+    @Test
+    public void testNextFloats() {
+        XorShift1024Star instance = new XorShift1024Star(5);
+        XorShift1024Star expected = new XorShift1024Star(5);
+        float[] r = new float[21];
+        for (int len : new int[]{21, 1, 20, 0, 7}) {
+            instance.nextFloats(r, 0, len);
+            for (int i = 0; i < len; i++) {
+                Assert.assertEquals(expected.nextFloat(), r[i], 0);
+            }
+            Assert.assertEquals(expected.nextInt(), instance.nextInt());
+        }
+    }
+
+    @Test
+    public void testBulkBounds() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        long[] r = new long[4];
+        int[][] bad = {{-1, 1}, {5, 0}, {0, 5}, {2, 3}, {1, -1}};
+        for (int[] b : bad) {
+            try {
+                instance.nextLongs(r, b[0], b[1]);
+                Assert.fail("Expected OutOfRangeException!");
+            } catch (OutOfRangeException e) {
+                // ignored
+            }
+        }
+        instance.nextLongs(r, 4, 0);
+    }
+
+    @Test
+    public void testNextBytes64() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        XorShift1024Star expected = new XorShift1024Star(1);
+        byte[] r = new byte[8 * 5 + 3];
+        instance.nextBytes(r);
+        for (int i = 0; i < r.length; i += Long.BYTES) {
+            long t = expected.nextLong();
+            for (int j = i; j < i + Long.BYTES && j < r.length; j++) {
+                Assert.assertEquals((byte) t, r[j]);
+                t >>>= Byte.SIZE;
+            }
+        }
+        Assert.assertEquals(expected.nextLong(), instance.nextLong());
+    }
+
+    @Test
+    public void testNextBytesBuffer() {
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(8 * 7 + 5),
+            ByteBuffer.allocateDirect(8 * 7 + 5).order(ByteOrder.LITTLE_ENDIAN)}) {
+            XorShift1024Star instance = new XorShift1024Star(2);
+            XorShift1024Star expected = new XorShift1024Star(2);
+            buffer.position(1);
+            buffer.limit(buffer.capacity() - 1);
+            instance.nextBytes(buffer);
+            Assert.assertEquals(buffer.limit(), buffer.position());
+            Assert.assertEquals(0, buffer.get(0));
+            buffer.position(1);
+            for (int i = 0; i < 7; i++) {
+                Assert.assertEquals(expected.nextLong(), buffer.getLong());
+            }
+            long t = expected.nextLong();
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals((byte) t, buffer.get());
+                t >>>= Byte.SIZE;
+            }
+            buffer.limit(buffer.capacity());
+            Assert.assertEquals(0, buffer.get(buffer.capacity() - 1));
+            Assert.assertEquals(expected.nextLong(), instance.nextLong());
+        }
+    }
+
+    @Test
+    public void testJump() {
+        /* first 4 nextLongs after setSeed(1) and jump() */
+        long[] expected = {2503787527719330494L, -4339543148983869987L, -8645470427615053642L, 3577537606940198926L};
+        XorShift1024Star instance = new XorShift1024Star(1);
+        instance.jump();
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], instance.nextLong());
+        }
+        // jumped() returns a jumped copy and leaves the original as is
+        instance.setSeed(1);
+        XorShift1024Star copy = instance.jumped();
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], copy.nextLong());
+        }
+        for (int i = 0; i < results[1].length; i++) {
+            Assert.assertEquals(results[1][i], instance.nextLong());
+        }
+        // jumping commutes with stepping, also with a non-zero state index
+        XorShift1024Star a = new XorShift1024Star(2);
+        XorShift1024Star b = new XorShift1024Star(2);
+        for (int i = 0; i < 21; i++) {
+            a.nextLong();
+        }
+        a.jump();
+        b.jump();
+        for (int i = 0; i < 21; i++) {
+            b.nextLong();
+        }
+        for (int i = 0; i < 32; i++) {
+            Assert.assertEquals(a.nextLong(), b.nextLong());
+        }
+    }
+
+    @Test
+    public void testAdvance() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        XorShift1024Star expected = new XorShift1024Star(1);
+        long done = 0;
+        for (long n : new long[]{0, 1, 15, 16, 17, 1000, 1023, 1024, 1025, 5000}) {
+            instance.advance(n);
+            for (long i = 0; i < n; i++) {
+                expected.nextLong();
+            }
+            done += n;
+            for (int i = 0; i < 4; i++) {
+                Assert.assertEquals(expected.nextLong(), instance.nextLong());
+            }
+            done += 4;
+        }
+        // negative steps go back, here to the start of the seeded sequence
+        instance.advance(-done);
+        for (int i = 0; i < results[1].length; i++) {
+            Assert.assertEquals(results[1][i], instance.nextLong());
+        }
+        // 2^512 steps is jump() and a full period returns to the same state
+        XorShift1024Star a = new XorShift1024Star(2);
+        XorShift1024Star b = new XorShift1024Star(2);
+        a.jump();
+        b.advance(BigInteger.ONE.shiftLeft(512));
+        Assert.assertArrayEquals((long[]) a.getState(), (long[]) b.getState());
+        b.advance(BigInteger.ONE.shiftLeft(1024).subtract(BigInteger.ONE));
+        Assert.assertArrayEquals((long[]) a.getState(), (long[]) b.getState());
+        // advance by i * L starts shard i where the sequential run is
+        b.setSeed(3);
+        a.setSeed(3);
+        b.advance(3L * 100_000);
+        a.advance(100_000);
+        a.advance(BigInteger.valueOf(2L * 100_000));
+        Assert.assertEquals(a.nextLong(), b.nextLong());
+    }
+
+    @Test
+    public void testSplit() {
+        XorShift1024Star parent = new XorShift1024Star(1);
+        XorShift1024Star child = parent.split();
+        // the parent is advanced by the 16 longs used for the child state
+        for (int i = 16; i < results[1].length; i++) {
+            Assert.assertEquals(results[1][i], parent.nextLong());
+        }
+        // splitting is reproducible
+        parent.setSeed(1);
+        XorShift1024Star again = parent.split();
+        XorShift1024Star grandchild = child.split();
+        XorShift1024Star other = again.split();
+        for (int i = 0; i < 32; i++) {
+            Assert.assertEquals(grandchild.nextLong(), other.nextLong());
+        }
+        // parent and child sequences should agree in about half of the bits
+        parent.setSeed(1);
+        child = parent.split();
+        final int n = 10000;
+        long ones = 0;
+        for (int i = 0; i < n; i++) {
+            ones += Long.bitCount(parent.nextLong() ^ child.nextLong());
+        }
+        Assert.assertEquals(32.0, (double) ones / n, 0.1);
+    }
+
+    @Test
+    public void testStreams() {
+        // sequential streams draw from the generator itself
+        XorShift1024Star instance = new XorShift1024Star(1);
+        long[] r = instance.longs(results[1].length).toArray();
+        Assert.assertArrayEquals(results[1], r);
+        XorShift1024Star expected = new XorShift1024Star(2);
+        instance.setSeed(2);
+        double[] d = instance.doubles(10).toArray();
+        for (int i = 0; i < d.length; i++) {
+            Assert.assertEquals(expected.nextDouble(), d[i], 0);
+        }
+        int[] k = instance.ints(11).toArray();
+        for (int i = 0; i < k.length; i++) {
+            Assert.assertEquals(expected.nextInt(), k[i]);
+        }
+        // ranges
+        Assert.assertTrue(instance.longs(1000, -5, 5).allMatch(x -> x >= -5 && x < 5));
+        Assert.assertTrue(instance.longs(1000, Long.MIN_VALUE + 1, Long.MAX_VALUE).allMatch(x -> x != Long.MIN_VALUE && x != Long.MAX_VALUE));
+        Assert.assertTrue(instance.ints(1000, Integer.MIN_VALUE, 7).allMatch(x -> x < 7));
+        Assert.assertTrue(instance.doubles(1000, 2.0, 3.0).allMatch(x -> x >= 2.0 && x < 3.0));
+        Assert.assertEquals(0, instance.ints(0).count());
+        try {
+            instance.ints(10, 3, 3);
+            Assert.fail("Expected NumberIsTooLargeException!");
+        } catch (NumberIsTooLargeException e) {
+            // ignored
+        }
+        try {
+            instance.doubles(-1);
+            Assert.fail("Expected NotPositiveException!");
+        } catch (NotPositiveException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testParallelStreams() {
+        final int n = 100000;
+        XorShift1024Star instance = new XorShift1024Star(1);
+        Assert.assertEquals(n, instance.longs(n).parallel().count());
+        Assert.assertEquals(0.5, instance.doubles(n).parallel().average().getAsDouble(), 0.01);
+        Assert.assertEquals(n, instance.ints(n, 0, 10).parallel().filter(x -> x >= 0 && x < 10).count());
+        // the same splits give the same values
+        Spliterator.OfLong a = new XorShift1024Star(3).longs(64).spliterator();
+        Spliterator.OfLong b = new XorShift1024Star(3).longs(64).spliterator();
+        Spliterator.OfLong a1 = a.trySplit();
+        Spliterator.OfLong b1 = b.trySplit();
+        Spliterator.OfLong a2 = a1.trySplit();
+        Spliterator.OfLong b2 = b1.trySplit();
+        for (Spliterator.OfLong[] pair : new Spliterator.OfLong[][]{{a, b}, {a1, b1}, {a2, b2}}) {
+            final long[] x = new long[1];
+            while (pair[0].tryAdvance((long v) -> x[0] = v)) {
+                Assert.assertTrue(pair[1].tryAdvance((long v) -> Assert.assertEquals(x[0], v)));
+            }
+        }
+        // the split off prefix continues the sequential sequence
+        a = new XorShift1024Star(1).longs(results[1].length * 2).spliterator();
+        a1 = a.trySplit();
+        Assert.assertEquals(results[1].length, a1.estimateSize());
+        final int[] i = new int[1];
+        a1.forEachRemaining((long v) -> Assert.assertEquals(results[1][i[0]++], v));
+    }
+
+    @Test
+    public void testJdkRandomGenerator() {
+        java.util.random.RandomGenerator jdk = java.util.random.RandomGenerator.of("XorShift1024Star");
+        Assert.assertTrue(jdk instanceof XorShift1024Star);
+        jdk = RandomGeneratorFactory.of("XorShift1024Star").create(1L);
+        for (int i = 0; i < results[1].length; i++) {
+            Assert.assertEquals(results[1][i], jdk.nextLong());
+        }
+        // copyAndJump() returns the current state and jumps this one
+        XorShift1024Star instance = new XorShift1024Star(1);
+        java.util.random.RandomGenerator copy = instance.copyAndJump();
+        Assert.assertEquals(results[1][0], copy.nextLong());
+        XorShift1024Star expected = new XorShift1024Star(1);
+        expected.jump();
+        Assert.assertEquals(expected.nextLong(), instance.nextLong());
+        // leap() is 2^768 steps
+        instance.setSeed(2);
+        expected.setSeed(2);
+        instance.leap();
+        expected.advance(BigInteger.ONE.shiftLeft(768));
+        Assert.assertArrayEquals((long[]) expected.getState(), (long[]) instance.getState());
+        Assert.assertEquals(0x1.0p512, instance.jumpDistance(), 0);
+        Assert.assertEquals(0x1.0p768, instance.leapDistance(), 0);
+        Assert.assertEquals(3, instance.jumps(3).count());
+    }
+
+    @Test
+    public void testSeedScheme() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        Assert.assertEquals(BitsStreamGenerator64.SeedScheme.SHA512_CHAIN, instance.getSeedScheme());
+        // SHA-512 of the big endian seed, then SHA-512 of the digest
+        long[] s = instance.hashSeedFull(new long[]{1});
+        Assert.assertEquals(-2333911840176598905L, s[0]);
+        Assert.assertEquals(1811322393619945710L, s[7]);
+        Assert.assertEquals(-1396803377523698494L, s[8]);
+        Assert.assertEquals(1058884393542529225L, s[15]);
+        s = instance.mixSeed(new long[]{1});
+        Assert.assertEquals(-2188067652490786990L, s[0]);
+        Assert.assertEquals(-8706415945501961880L, s[15]);
+        // setSeed() uses the selected scheme
+        instance = new XorShift1024Star(1, BitsStreamGenerator64.SeedScheme.SHA512_FULL);
+        Assert.assertArrayEquals(instance.hashSeedFull(new long[]{1}), (long[]) instance.getState());
+        instance.setSeedScheme(BitsStreamGenerator64.SeedScheme.MIX64);
+        instance.setSeed(new int[]{1, 1});
+        Assert.assertArrayEquals(instance.mixSeed(new long[]{1, 1}), (long[]) instance.getState());
+        Assert.assertNotEquals(instance.mixSeed(new long[]{1})[0], instance.mixSeed(new long[]{1, 0})[0]);
+        Assert.assertEquals(0.5, instance.stateOnes(), 0.1);
+        instance.setSeedScheme(BitsStreamGenerator64.SeedScheme.SHA512_CHAIN);
+        instance.setSeed(1);
+        for (int i = 0; i < results[1].length; i++) {
+            Assert.assertEquals(results[1][i], instance.nextLong());
+        }
+        try {
+            instance.setSeedScheme(null);
+            Assert.fail("Expected NullArgumentException!");
+        } catch (NullArgumentException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testCreate() {
+        XorShift1024Star[] a = XorShift1024Star.create(100, 1);
+        XorShift1024Star[] b = XorShift1024Star.create(100, 1);
+        XorShift1024Star root = new XorShift1024Star(1);
+        Assert.assertEquals(100, a.length);
+        for (int i = 0; i < a.length; i++) {
+            long t = a[i].nextLong();
+            Assert.assertEquals(t, b[i].nextLong());
+            Assert.assertEquals(root.split().nextLong(), t);
+        }
+        Assert.assertEquals(0, XorShift1024Star.create(0).length);
+        Assert.assertNotEquals(XorShift1024Star.create(1)[0].nextLong(), XorShift1024Star.create(1)[0].nextLong());
+        try {
+            XorShift1024Star.create(-1);
+            Assert.fail("Expected NotPositiveException!");
+        } catch (NotPositiveException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testBoundedIntegers() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        // the high bits of a long times the bound, the first try is accepted
+        // unless the low bits fall in the 2^64 mod n biased range
+        XorShift1024Star expected = new XorShift1024Star(1);
+        for (long n : new long[]{1, 3, 1000, Long.MAX_VALUE}) {
+            long x = expected.nextLong();
+            Assert.assertEquals(Math.multiplyHigh(x, n) + ((x >> 63) & n), instance.nextLong(n));
+        }
+        // chi-square of a bound that is not a power of two
+        final int n = 7;
+        long[] counts = new long[n];
+        double[] expected_counts = new double[n];
+        for (int i = 0; i < 70000; i++) {
+            counts[instance.nextInt(n)]++;
+        }
+        Arrays.fill(expected_counts, 10000);
+        TestUtils.assertChiSquareAccept(expected_counts, counts, 0.001);
+        // a bound above 2^62 where plain modulo would be badly biased
+        final long big = (1L << 62) + (1L << 61);
+        int low = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (instance.nextLong(big) < (1L << 62)) {
+                low++;
+            }
+        }
+        Assert.assertEquals(10000 * 2.0 / 3, low, 200);
+        // inclusive and exclusive ranges
+        for (int i = 0; i < 1000; i++) {
+            int a = instance.nextIntInclusive(-3, 3);
+            Assert.assertTrue(a >= -3 && a <= 3);
+            long b = instance.nextLongInclusive(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+            Assert.assertTrue(b >= Long.MAX_VALUE - 1);
+            int c = instance.nextInt(Integer.MIN_VALUE, Integer.MIN_VALUE + 2);
+            Assert.assertTrue(c == Integer.MIN_VALUE || c == Integer.MIN_VALUE + 1);
+            long d = instance.nextLong(-1L, Long.MAX_VALUE);
+            Assert.assertTrue(d >= -1L && d != Long.MAX_VALUE);
+        }
+        Assert.assertEquals(5, instance.nextIntInclusive(5, 5));
+        // the full ranges are single draws
+        expected = new XorShift1024Star(9);
+        instance.setSeed(9);
+        Assert.assertEquals(expected.nextLong(), instance.nextLongInclusive(Long.MIN_VALUE, Long.MAX_VALUE));
+        Assert.assertEquals(expected.nextInt(), instance.nextIntInclusive(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        try {
+            instance.nextLongInclusive(1, 0);
+            Assert.fail("Expected NumberIsTooLargeException!");
+        } catch (NumberIsTooLargeException e) {
+            // ignored
+        }
+        try {
+            instance.nextInt(1, 1);
+            Assert.fail("Expected NumberIsTooLargeException!");
+        } catch (NumberIsTooLargeException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testUnitIntervalDoubles() {
+        XorShift1024Star instance = new XorShift1024Star(3);
+        XorShift1024Star expected = new XorShift1024Star(3);
+        double sum_open = 0;
+        double sum_closed = 0;
+        final int n = 100000;
+        for (int i = 0; i < n; i++) {
+            double open = instance.nextDoubleOpen();
+            Assert.assertEquals(((expected.nextLong() >>> 12) << 1 | 1) * 0x1.0p-53, open, 0);
+            Assert.assertTrue(open > 0 && open < 1);
+            double closed = instance.nextDoubleClosed();
+            long x = expected.nextLong() >>> 10;
+            Assert.assertEquals(((x >>> 1) + (x & 1)) * 0x1.0p-53, closed, 0);
+            Assert.assertTrue(closed >= 0 && closed <= 1);
+            double ranged = instance.nextDouble(-2.0, 6.0);
+            Assert.assertEquals(-2.0 + expected.nextDouble() * 8.0, ranged, 0);
+            Assert.assertTrue(ranged >= -2.0 && ranged < 6.0);
+            sum_open += open;
+            sum_closed += closed;
+        }
+        Assert.assertEquals(0.5, sum_open / n, 0.005);
+        Assert.assertEquals(0.5, sum_closed / n, 0.005);
+        try {
+            instance.nextDouble(1.0, 1.0);
+            Assert.fail("Expected NumberIsTooLargeException!");
+        } catch (NumberIsTooLargeException e) {
+            // ignored
+        }
+        try {
+            instance.nextDouble(-Double.MAX_VALUE, Double.MAX_VALUE);
+            Assert.fail("Expected NotFiniteNumberException!");
+        } catch (NotFiniteNumberException e) {
+            // ignored
+        }
+        try {
+            instance.doubles(1, -Double.MAX_VALUE, Double.MAX_VALUE);
+            Assert.fail("Expected NotFiniteNumberException!");
+        } catch (NotFiniteNumberException e) {
+            // ignored
+        }
+    }
+
+    @Test
+    public void testSpecializedMethods() {
+        XorShift1024Star instance = new XorShift1024Star(5);
+        XorShift1024Star expected = new XorShift1024Star(5);
+        for (int i = 0; i < 100; i++) {
+            long t = expected.nextLong();
+            Assert.assertEquals((int) (t >>> 32), instance.nextInt());
+            Assert.assertEquals((int) t, instance.nextInt());
+            t = expected.nextLong();
+            Assert.assertEquals((t >>> 11) * 0x1.0p-53, instance.nextDouble(), 0);
+            t = expected.nextLong();
+            Assert.assertEquals(((int) (t >>> 32) >>> 8) / (float) (1 << 24), instance.nextFloat(), 0);
+            Assert.assertEquals((int) t, instance.nextInt()); // stored half
+            Assert.assertEquals(expected.nextLong(), instance.nextLong());
+        }
+    }
+
+    /**
+     * Draws a mix of values using all the values stored between calls.
+     */
+    private static double[] mixedDraws(XorShift1024Star rng) {
+        double[] r = new double[40];
+        for (int i = 0; i < r.length; i += 4) {
+            r[i] = rng.nextInt();
+            r[i + 1] = rng.nextGaussian();
+            r[i + 2] = rng.nextBoolean() ? 1 : 0;
+            r[i + 3] = rng.nextLong();
+        }
+        return r;
+    }
+
+    @Test
+    public void testSaveRestoreState() {
+        XorShift1024Star instance = new XorShift1024Star(21);
+        for (boolean reservoir : new boolean[]{false, true}) {
+            instance.setBitReservoir(reservoir);
+            for (int i = 0; i < 7; i++) {
+                instance.nextLong(); // index p not 0
+            }
+            instance.nextInt(); // int half stored
+            instance.nextGaussian(); // gaussian stored
+            instance.nextBoolean(); // reservoir bits left
+            Assert.assertEquals(21, instance.getStateLength());
+            long[] state = new long[23];
+            instance.saveState(state, 2);
+            ByteBuffer buffer = ByteBuffer.allocate(instance.getMaxStateBytes());
+            instance.writeState(buffer);
+            Assert.assertTrue(buffer.position() <= 152);
+            double[] expected = mixedDraws(instance);
+
+            XorShift1024Star restored = new XorShift1024Star(1);
+            restored.restoreState(state, 2);
+            Assert.assertTrue(restored.isBitReservoir() == reservoir);
+            Assert.assertArrayEquals(expected, mixedDraws(restored), 0);
+            buffer.flip();
+            restored = new XorShift1024Star(2);
+            restored.readState(buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+            Assert.assertArrayEquals(expected, mixedDraws(restored), 0);
+        }
+        // nothing stored, the index and the state words
+        instance = new XorShift1024Star(21);
+        ByteBuffer buffer = ByteBuffer.allocate(instance.getMaxStateBytes());
+        instance.writeState(buffer);
+        Assert.assertEquals(1 + 1 + 128 + 1, buffer.position());
+        // a wrong format version
+        buffer.put(0, (byte) 99);
+        buffer.flip();
+        try {
+            instance.readState(buffer);
+            Assert.fail("Expected OutOfRangeException!");
+        } catch (OutOfRangeException e) {
+            // ignored
+        }
+        long[] state = new long[21];
+        instance.saveState(state);
+        state[16] = 16; // index
+        try {
+            instance.restoreState(state);
+            Assert.fail("Expected OutOfRangeException!");
+        } catch (OutOfRangeException e) {
+            // ignored
+        }
+        try {
+            instance.saveState(new long[21], 1);
+            Assert.fail("Expected NumberIsTooSmallException!");
+        } catch (NumberIsTooSmallException e) {
+            // ignored
+        }
+    }
+
+    /**
+     * A generator with an index not 0, a gaussian and reservoir bits stored.
+     */
+    private static XorShift1024Star storedValues(long seed) {
+        XorShift1024Star rng = new XorShift1024Star(seed);
+        rng.setBitReservoir(true);
+        for (int i = 0; i < 7; i++) {
+            rng.nextLong();
+        }
+        rng.nextInt();
+        rng.nextGaussian();
+        rng.nextBoolean();
+        return rng;
+    }
+
+    @Test
+    public void testReadCorruptState() {
+        ByteBuffer buffer = ByteBuffer.allocate(148);
+        storedValues(21).writeState(buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        final byte[] good = buffer.array();
+        final double[] expected = mixedDraws(storedValues(3));
+        // at 1: index, at 130: flags, at 139: reservoir bits
+        int[][] corruptions = {{1, 16}, {1, -1}, {130, good[130] | 0x30},
+            {130, good[130] | 0xc0}, {139, 0}, {139, 65}};
+        for (int[] corruption : corruptions) {
+            byte[] bad = good.clone();
+            bad[corruption[0]] = (byte) corruption[1];
+            XorShift1024Star instance = storedValues(3);
+            try {
+                instance.readState(ByteBuffer.wrap(bad));
+                Assert.fail("Expected OutOfRangeException!");
+            } catch (OutOfRangeException e) {
+                // ignored
+            }
+            Assert.assertArrayEquals(expected, mixedDraws(instance), 0);
+        }
+        for (int length = 0; length < good.length; length++) {
+            XorShift1024Star instance = storedValues(3);
+            try {
+                instance.readState(ByteBuffer.wrap(good, 0, length));
+                Assert.fail("Expected BufferUnderflowException!");
+            } catch (BufferUnderflowException e) {
+                // ignored
+            }
+            Assert.assertArrayEquals(expected, mixedDraws(instance), 0);
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        XorShift1024Star instance = new XorShift1024Star(33);
+        for (boolean reservoir : new boolean[]{false, true}) {
+            instance.setBitReservoir(reservoir);
+            instance.nextLong();
+            instance.nextInt(); // int half stored
+            instance.nextGaussian(); // gaussian stored
+            instance.nextBoolean(); // reservoir bits left
+            XorShift1024Star copy = instance.copy();
+            XorShift1024Star constructed = new XorShift1024Star(instance);
+            XorShift1024Star target = new XorShift1024Star(1);
+            target.copyFrom(instance);
+            double[] expected = mixedDraws(instance);
+            Assert.assertArrayEquals(expected, mixedDraws(copy), 0);
+            Assert.assertArrayEquals(expected, mixedDraws(constructed), 0);
+            Assert.assertArrayEquals(expected, mixedDraws(target), 0);
+            Assert.assertTrue(target.isBitReservoir() == reservoir);
+            // the copies do not share state
+            copy.nextLong();
+            Assert.assertEquals(constructed.nextLong(), instance.nextLong());
+        }
+    }
 }
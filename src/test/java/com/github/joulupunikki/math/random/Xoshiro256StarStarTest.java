@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import java.nio.ByteBuffer;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorAbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class Xoshiro256StarStarTest extends RandomGeneratorAbstractTest {
+
+    /* first 8 longs of the reference implementation from state {1, 2, 3, 4} */
+    private static final long[] results = {11520L, 0L, 1509978240L, 1215971899390074240L, 1216172134540287360L, 607988272756665600L, -2273821095074991991L, 8476171486693032832L};
+    /* state {1, 2, 3, 4} after jump() and longJump() */
+    private static final long[] jumped = {0x8c7a1539_56b5f3d1L, 0x701f1a71_3401d85eL, 0x6527f66a_65469085L, 0x8386b786_c4408050L};
+    private static final long[] long_jumped = {0x096a8eb7_1295a400L, 0xdbf84991_e50f4516L, 0x534ee745_810d2a0eL, 0x31655ca1_a2215bf1L};
+
+    @Override
+    public RandomGenerator makeGenerator() {
+        return new Xoshiro256StarStar(1);
+    }
+
+    public Xoshiro256StarStarTest() {
+    }
+
+    @Test
+    public void testReference() {
+        Xoshiro256StarStar instance = new Xoshiro256StarStar(1);
+        instance.setState(new long[]{1, 2, 3, 4});
+        for (long r : results) {
+            Assert.assertEquals(r, instance.nextLong());
+        }
+        instance.setState(new long[]{1, 2, 3, 4});
+        instance.jump();
+        Assert.assertArrayEquals(jumped, (long[]) instance.getState());
+        Assert.assertEquals(-4912596984176294952L, instance.nextLong());
+        instance.setState(new long[]{1, 2, 3, 4});
+        instance.longJump();
+        Assert.assertArrayEquals(long_jumped, (long[]) instance.getState());
+        Assert.assertEquals(5942309088398569549L, instance.nextLong());
+        instance.setState(new long[]{1, 2, 3, 4});
+        instance.leap();
+        Assert.assertArrayEquals(long_jumped, (long[]) instance.getState());
+        Assert.assertEquals(0x1.0p128, instance.jumpDistance(), 0);
+        Assert.assertEquals(0x1.0p192, instance.leapDistance(), 0);
+    }
+
+    @Test
+    public void testBulk() {
+        Xoshiro256StarStar instance = new Xoshiro256StarStar(7);
+        Xoshiro256StarStar expected = instance.copy();
+        long[] longs = new long[1003];
+        instance.nextLongs(longs, 1, 1000);
+        double[] doubles = new double[1000];
+        instance.nextDoubles(doubles, 0, 1000);
+        for (int i = 1; i < 1001; i++) {
+            Assert.assertEquals(expected.nextLong(), longs[i]);
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(expected.nextDouble(), doubles[i], 0);
+        }
+        Assert.assertEquals(0, longs[0]);
+        Assert.assertEquals(0, longs[1001]);
+        Assert.assertEquals(expected.nextInt(), instance.nextInt());
+        Assert.assertEquals(expected.nextInt(), instance.nextInt());
+    }
+
+    @Test
+    public void testSplitAndCopy() {
+        Xoshiro256StarStar parent = new Xoshiro256StarStar(1);
+        Xoshiro256StarStar child = parent.split();
+        parent.setSeed(1);
+        Xoshiro256StarStar again = parent.split();
+        for (int i = 0; i < 32; i++) {
+            Assert.assertEquals(child.nextLong(), again.nextLong());
+        }
+        // parent and child sequences should agree in about half of the bits
+        final int n = 10000;
+        long ones = 0;
+        for (int i = 0; i < n; i++) {
+            ones += Long.bitCount(parent.nextLong() ^ child.nextLong());
+        }
+        Assert.assertEquals(32.0, (double) ones / n, 0.1);
+        // a copy continues the stored int half
+        parent.nextInt();
+        Xoshiro256StarStar copy = new Xoshiro256StarStar(parent);
+        Assert.assertEquals(parent.nextInt(), copy.nextInt());
+        Assert.assertEquals(parent.nextLong(), copy.nextLong());
+    }
+
+    @Test
+    public void testSaveRestoreState() {
+        Xoshiro256StarStar instance = new Xoshiro256StarStar(21);
+        instance.nextInt(); // int half stored
+        instance.nextGaussian(); // gaussian stored
+        Assert.assertEquals(8, instance.getStateLength());
+        long[] state = new long[10];
+        instance.saveState(state, 2);
+        ByteBuffer buffer = ByteBuffer.allocate(instance.getMaxStateBytes());
+        instance.writeState(buffer);
+        double[] expected = {instance.nextInt(), instance.nextGaussian(), instance.nextLong()};
+
+        Xoshiro256StarStar restored = new Xoshiro256StarStar(1);
+        restored.restoreState(state, 2);
+        Assert.assertArrayEquals(expected, new double[]{restored.nextInt(), restored.nextGaussian(), restored.nextLong()}, 0);
+        buffer.flip();
+        restored = new Xoshiro256StarStar(2);
+        restored.readState(buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertArrayEquals(expected, new double[]{restored.nextInt(), restored.nextGaussian(), restored.nextLong()}, 0);
+    }
+
+    @Test
+    public void testJdkRandomGenerator() {
+        java.util.random.RandomGenerator jdk = java.util.random.RandomGenerator.of("Xoshiro256StarStar");
+        Assert.assertTrue(jdk instanceof Xoshiro256StarStar);
+        Assert.assertEquals(3, ((Xoshiro256StarStar) jdk).jumps(3).count());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.random.CorrelatedRandomVectorGenerator;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+public class ZigguratGaussianRandomGeneratorTest {
+
+    public ZigguratGaussianRandomGeneratorTest() {
+    }
+
+    @Test
+    public void testMeanAndStandardDeviation() {
+        ZigguratGaussianRandomGenerator generator = new ZigguratGaussianRandomGenerator(new XorShift1024Star(17399225432L));
+        double[] sample = new double[100000];
+        generator.nextNormalizedDoubles(sample);
+        Assert.assertEquals(0.0, StatUtils.mean(sample), 0.012);
+        Assert.assertEquals(1.0, StatUtils.variance(sample), 0.02);
+    }
+
+    @Test
+    public void testDistribution() {
+        ZigguratGaussianRandomGenerator generator = new ZigguratGaussianRandomGenerator(new XorShift1024Star(1));
+        double[] sample = new double[100000];
+        generator.nextNormalizedDoubles(sample);
+        Assert.assertTrue(new KolmogorovSmirnovTest().kolmogorovSmirnovTest(new NormalDistribution(), sample) > 0.01);
+        // the tail beyond R = 3.654 and the base layer wedges
+        NormalDistribution normal = new NormalDistribution();
+        for (double x : new double[]{2.0, 3.0, 3.6, 4.0}) {
+            int count = 0;
+            for (double d : sample) {
+                if (Math.abs(d) > x) {
+                    count++;
+                }
+            }
+            double expected = 2 * normal.cumulativeProbability(-x) * sample.length;
+            Assert.assertEquals(expected, count, 4 * Math.sqrt(expected) + 1);
+        }
+    }
+
+    @Test
+    public void testGaussianMode() {
+        XorShift1024Star instance = new XorShift1024Star(1);
+        XorShift1024Star expected = new XorShift1024Star(1);
+        Assert.assertEquals(BitsStreamGenerator64.GaussianMode.BOX_MULLER, instance.getGaussianMode());
+        instance.nextGaussian();
+        instance.setGaussianMode(BitsStreamGenerator64.GaussianMode.ZIGGURAT);
+        expected.nextDouble();
+        expected.nextDouble();
+        ZigguratGaussianRandomGenerator ziggurat = new ZigguratGaussianRandomGenerator(expected);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(ziggurat.nextNormalizedDouble(), instance.nextGaussian(), 0);
+        }
+        // NormalDistribution samples with nextGaussian()
+        NormalDistribution normal = new NormalDistribution(instance, 5, 2);
+        double[] sample = normal.sample(10000);
+        Assert.assertEquals(5.0, StatUtils.mean(sample), 0.05);
+        Assert.assertEquals(4.0, StatUtils.variance(sample), 0.1);
+    }
+
+    @Test
+    public void testCorrelatedVectors() {
+        double[] mean = {1, 2};
+        RealMatrix covariance = MatrixUtils.createRealMatrix(new double[][]{{4, 1}, {1, 2}});
+        CorrelatedRandomVectorGenerator generator = new CorrelatedRandomVectorGenerator(mean, covariance, 1e-12,
+                new ZigguratGaussianRandomGenerator(new XorShift1024Star(2)));
+        double[][] sample = new double[20000][];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = generator.nextVector();
+        }
+        RealMatrix estimate = new Covariance(sample).getCovarianceMatrix();
+        Assert.assertEquals(4, estimate.getEntry(0, 0), 0.15);
+        Assert.assertEquals(1, estimate.getEntry(0, 1), 0.1);
+        Assert.assertEquals(2, estimate.getEntry(1, 1), 0.1);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 joulupunikki joulupunikki@gmail.communist.invalid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.joulupunikki.math.random;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API engine of {@link XorShift1024StarLanes}, one vector holds the
+ * same state word of all lanes. Only referenced reflectively so that the
+ * rest of the library works without module jdk.incubator.vector.
+ *
+ * @author joulupunikki joulupunikki@gmail.communist.invalid
+ */
+final class XorShift1024StarVectorEngine extends XorShift1024StarLanes.Engine {
+
+    /* from Random */
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    /* 2^52 and its bits, a long below 2^52 or'ed into the bits is added */
+    private static final double TWO_52 = 0x1.0p52;
+    private static final long TWO_52_BITS = Double.doubleToRawLongBits(TWO_52);
+    /* species of lanes longs */
+    private final VectorSpecies<Long> species;
+    /* lane count */
+    private final int lanes;
+
+    private XorShift1024StarVectorEngine(VectorSpecies<Long> species) {
+        this.species = species;
+        this.lanes = species.length();
+    }
+
+    /**
+     * Returns an engine for the lane count.
+     *
+     * @param lanes the count of lanes
+     * @return the engine or null if lanes is not 2, 4 or 8 or the preferred
+     * vector size of the platform holds fewer than lanes longs
+     */
+    static XorShift1024StarVectorEngine create(int lanes) {
+        VectorSpecies<Long> species;
+        switch (lanes) {
+            case 2:
+                species = LongVector.SPECIES_128;
+                break;
+            case 4:
+                species = LongVector.SPECIES_256;
+                break;
+            case 8:
+                species = LongVector.SPECIES_512;
+                break;
+            default:
+                return null;
+        }
+        if (LongVector.SPECIES_PREFERRED.length() < lanes) {
+            return null;
+        }
+        return new XorShift1024StarVectorEngine(species);
+    }
+
+    @Override
+    int longs(long[] st, int q, long[] dst, int off, int steps) {
+        final int n = lanes;
+        for (int i = 0; i < steps; i++) {
+            final int a = q * n;
+            q = (q + 1) & 15;
+            final int b = q * n;
+            LongVector s0 = LongVector.fromArray(species, st, a);
+            LongVector s1 = LongVector.fromArray(species, st, b);
+            s1 = s1.lanewise(VectorOperators.XOR, s1.lanewise(VectorOperators.LSHL, 31));
+            s1 = s1.lanewise(VectorOperators.XOR, s1.lanewise(VectorOperators.LSHR, 11));
+            s0 = s0.lanewise(VectorOperators.XOR, s0.lanewise(VectorOperators.LSHR, 30));
+            s0 = s0.lanewise(VectorOperators.XOR, s1);
+            s0.intoArray(st, b);
+            s0.lanewise(VectorOperators.MUL, XorShift1024Star.MULTIPLIER).intoArray(dst, off);
+            off += n;
+        }
+        return q;
+    }
+
+    @Override
+    int doubles(long[] st, int q, double[] dst, int off, int steps) {
+        final int n = lanes;
+        for (int i = 0; i < steps; i++) {
+            final int a = q * n;
+            q = (q + 1) & 15;
+            final int b = q * n;
+            LongVector s0 = LongVector.fromArray(species, st, a);
+            LongVector s1 = LongVector.fromArray(species, st, b);
+            s1 = s1.lanewise(VectorOperators.XOR, s1.lanewise(VectorOperators.LSHL, 31));
+            s1 = s1.lanewise(VectorOperators.XOR, s1.lanewise(VectorOperators.LSHR, 11));
+            s0 = s0.lanewise(VectorOperators.XOR, s0.lanewise(VectorOperators.LSHR, 30));
+            s0 = s0.lanewise(VectorOperators.XOR, s1);
+            s0.intoArray(st, b);
+            // the 53 output bits y as (2 * (y >>> 1) + (y & 1)) * 2^-53, the
+            // two parts exactly converted by placing them in the mantissa of
+            // 2^52, lane conversion of longs to doubles is not intrinsified
+            LongVector y = s0.lanewise(VectorOperators.MUL, XorShift1024Star.MULTIPLIER)
+                    .lanewise(VectorOperators.LSHR, 11);
+            DoubleVector hi = y.lanewise(VectorOperators.LSHR, 1)
+                    .lanewise(VectorOperators.OR, TWO_52_BITS)
+                    .reinterpretAsDoubles().sub(TWO_52);
+            DoubleVector lo = y.lanewise(VectorOperators.AND, 1L)
+                    .lanewise(VectorOperators.OR, TWO_52_BITS)
+                    .reinterpretAsDoubles().sub(TWO_52);
+            hi.add(hi).add(lo).mul(DOUBLE_UNIT).intoArray(dst, off);
+            off += n;
+        }
+        return q;
+    }
+}